@@ -1,18 +1,39 @@
-from fastapi import APIRouter, File, UploadFile, HTTPException, Query
-from fastapi.responses import JSONResponse, FileResponse
+from fastapi import APIRouter, File, UploadFile, HTTPException, Query, Request
+from fastapi.responses import JSONResponse, FileResponse, Response
 from typing import Optional, List
 from pydantic import BaseModel
+from email.utils import formatdate, parsedate_to_datetime
 import os
 import json
-from datetime import datetime
+import hashlib
+import base64
+from datetime import datetime, timedelta
 import shutil
 import uuid
+import pymupdf
+from PIL import Image
 
 router = APIRouter(prefix="/notes", tags=["notes"])
 
 # Base path for notes
 NOTES_BASE_PATH = os.path.join(os.path.dirname(os.path.dirname(__file__)), "notes")
 METADATA_FILE = os.path.join(NOTES_BASE_PATH, "metadata.json")
+# Deleted note ids -> deletion time, so delta-syncing clients learn about removals
+TOMBSTONES_FILE = os.path.join(NOTES_BASE_PATH, "deleted.json")
+TOMBSTONE_RETENTION_DAYS = 90
+# Deletion time of the newest tombstone dropped so far; cursors older than that missed a deletion
+TOMBSTONE_WATERMARK_FILE = os.path.join(NOTES_BASE_PATH, "deleted_pruned.json")
+# Staging area for resumable uploads: <upload_id>.json (session) + <upload_id>.part (bytes so far)
+UPLOADS_PATH = os.path.join(NOTES_BASE_PATH, ".uploads")
+UPLOAD_SESSION_TTL_HOURS = 24
+MAX_CHUNK_SIZE = 8 * 1024 * 1024
+# Rendered PDF pages, so a viewer can show a page before the whole file has arrived:
+# <note_id>-p<page>-w<width>-<file mtime>.jpg (a re-uploaded file gets new names)
+PREVIEWS_PATH = os.path.join(NOTES_BASE_PATH, ".previews")
+# Widths are rounded up to one of these, so phones of similar size share a render
+PREVIEW_WIDTHS = (360, 720, 1080, 1440)
+MAX_PAGE_SIZE = 200
+VALID_SUBJECTS = ['ai', 'ivp', 'se']
 
 
 class NoteMetadata(BaseModel):
@@ -22,6 +43,7 @@ class NoteMetadata(BaseModel):
     year: Optional[str] = None
     uploaded_by: Optional[str] = None
     upload_date: str
+    updated_at: Optional[str] = None
     file_size: int  # in bytes
     file_type: str
     file_path: str
@@ -60,9 +82,68 @@ def save_metadata(metadata):
         raise HTTPException(status_code=500, detail=f"Error saving metadata: {str(e)}")
 
 
+def load_tombstones():
+    """Load the deleted-note tombstones from JSON file."""
+    if not os.path.exists(TOMBSTONES_FILE):
+        return {}
+    try:
+        with open(TOMBSTONES_FILE, 'r', encoding='utf-8') as f:
+            return json.load(f)
+    except Exception as e:
+        print(f"Error loading tombstones: {e}")
+        return {}
+
+
+def save_tombstones(tombstones):
+    """Save tombstones, dropping the ones older than the retention window."""
+    horizon = tombstone_horizon()
+    pruned = [v for v in tombstones.values() if v <= horizon]
+    tombstones = {k: v for k, v in tombstones.items() if v > horizon}
+    if pruned:
+        save_prune_watermark(max(pruned))
+    try:
+        with open(TOMBSTONES_FILE, 'w', encoding='utf-8') as f:
+            json.dump(tombstones, f, indent=2)
+    except Exception as e:
+        print(f"Error saving tombstones: {e}")
+
+
+def tombstone_horizon():
+    """Tombstones older than this are dropped the next time the list is saved."""
+    return (datetime.now() - timedelta(days=TOMBSTONE_RETENTION_DAYS)).isoformat()
+
+
+def load_prune_watermark():
+    """Oldest cursor a delta can still be computed from; older clients need a full resync."""
+    if not os.path.exists(TOMBSTONE_WATERMARK_FILE):
+        return ""
+    try:
+        with open(TOMBSTONE_WATERMARK_FILE, 'r', encoding='utf-8') as f:
+            return json.load(f).get("pruned_through", "")
+    except Exception as e:
+        print(f"Error loading tombstone watermark: {e}")
+        return ""
+
+
+def save_prune_watermark(pruned_through):
+    if pruned_through <= load_prune_watermark():
+        return
+    try:
+        with open(TOMBSTONE_WATERMARK_FILE, 'w', encoding='utf-8') as f:
+            json.dump({"pruned_through": pruned_through}, f)
+    except Exception as e:
+        print(f"Error saving tombstone watermark: {e}")
+
+
+def changed_at(note):
+    """Last change time of a note; entries written before updated_at existed use upload_date."""
+    return note.get("updated_at") or note.get("upload_date") or ""
+
+
 def scan_existing_notes():
     """Scan existing notes folder and create metadata for files without it."""
     metadata = load_metadata()
+    changed = False
     
     # Subject folders
     subjects = ['ai', 'ivp', 'se']
@@ -92,26 +173,64 @@ def scan_existing_notes():
                     "year": None,
                     "uploaded_by": "system",
                     "upload_date": datetime.fromtimestamp(os.path.getctime(file_path)).isoformat(),
+                    "updated_at": datetime.now().isoformat(),
                     "file_size": file_size,
                     "file_type": file_ext,
                     "file_path": f"{subject}/{filename}",
                     "description": None,
                     "tags": []
                 }
+                changed = True
     
-    save_metadata(metadata)
+    # Only rewrite when something was added so the file mtime stays usable as Last-Modified
+    if changed:
+        save_metadata(metadata)
     return metadata
 
 
+def metadata_last_modified():
+    """Modification time of the metadata file as a Unix timestamp (whole seconds)."""
+    if not os.path.exists(METADATA_FILE):
+        return 0
+    return int(os.path.getmtime(METADATA_FILE))
+
+
+def not_modified(request: Request, etag: str, last_modified: int) -> bool:
+    """Evaluate If-None-Match / If-Modified-Since against the current validators."""
+    if_none_match = request.headers.get("if-none-match")
+    if if_none_match is not None:
+        # If-None-Match takes precedence over If-Modified-Since (RFC 9110 13.2.2)
+        candidates = [t.strip() for t in if_none_match.split(",")]
+        return "*" in candidates or etag in candidates or f"W/{etag}" in candidates
+
+    if_modified_since = request.headers.get("if-modified-since")
+    if if_modified_since:
+        try:
+            since = parsedate_to_datetime(if_modified_since).timestamp()
+        except (TypeError, ValueError):
+            return False
+        return last_modified <= since
+    return False
+
+
 @router.get("/")
 async def get_all_notes(
+    request: Request,
     subject: Optional[str] = Query(None, description="Filter by subject (ai, ivp, se)"),
     year: Optional[str] = Query(None, description="Filter by year"),
     uploaded_by: Optional[str] = Query(None, description="Filter by uploader"),
     search: Optional[str] = Query(None, description="Search in name and description"),
     tags: Optional[str] = Query(None, description="Filter by tags (comma-separated)"),
+    limit: Optional[int] = Query(None, ge=1, le=MAX_PAGE_SIZE, description="Page size; omit for the whole list"),
+    cursor: Optional[str] = Query(None, description="next_cursor of the previous page"),
 ):
-    """Get all notes with optional filtering."""
+    """
+    Get all notes with optional filtering.
+
+    With a limit the list is paged: each page carries "next_cursor" (null on the last page)
+    to pass back as cursor. Cursors point at the last note of the page rather than an offset,
+    so uploads and deletions don't shift or repeat entries of later pages.
+    """
     metadata = scan_existing_notes()
     
     notes = list(metadata.values())
@@ -137,13 +256,104 @@ async def get_all_notes(
         notes = [n for n in notes if 
                  any(tag in [t.lower() for t in n.get("tags", [])] for tag in tag_list)]
     
-    # Sort by upload date (newest first)
-    notes.sort(key=lambda x: x.get("upload_date", ""), reverse=True)
-    
-    return JSONResponse(content={
+    # Sort by upload date (newest first); the id breaks ties so pages have a strict order
+    notes.sort(key=page_key, reverse=True)
+
+    next_cursor = None
+    total = len(notes)
+    if limit is not None:
+        if cursor:
+            after = decode_page_cursor(cursor)
+            notes = [n for n in notes if page_key(n) < after]
+        if len(notes) > limit:
+            notes = notes[:limit]
+            next_cursor = encode_page_cursor(page_key(notes[-1]))
+
+    content = {
         "success": True,
         "count": len(notes),
-        "notes": notes
+        "notes": notes,
+        # Starting point for GET /notes/changes
+        "cursor": sync_cursor(metadata, load_tombstones()),
+    }
+    if limit is not None:
+        content["total"] = total
+        content["next_cursor"] = next_cursor
+
+    # Validators: the ETag hashes the exact payload (so filters are covered), Last-Modified
+    # follows the metadata file. Clients must revalidate on every use.
+    body = json.dumps(content, ensure_ascii=False, separators=(",", ":")).encode("utf-8")
+    etag = '"' + hashlib.sha1(body).hexdigest() + '"'
+    last_modified = metadata_last_modified()
+    headers = {
+        "ETag": etag,
+        "Last-Modified": formatdate(last_modified, usegmt=True),
+        "Cache-Control": "no-cache",
+    }
+
+    if not_modified(request, etag, last_modified):
+        return Response(status_code=304, headers=headers)
+
+    return Response(content=body, media_type="application/json", headers=headers)
+
+
+def page_key(note):
+    """Sort key of the notes listing: upload date, then id."""
+    return (note.get("upload_date") or "", note.get("id") or "")
+
+
+def encode_page_cursor(key):
+    return base64.urlsafe_b64encode(json.dumps(list(key)).encode("utf-8")).decode("ascii")
+
+
+def decode_page_cursor(cursor):
+    try:
+        upload_date, note_id = json.loads(base64.urlsafe_b64decode(cursor.encode("ascii")))
+        return (str(upload_date), str(note_id))
+    except (ValueError, TypeError):
+        raise HTTPException(status_code=400, detail="Invalid cursor")
+
+
+def sync_cursor(metadata, tombstones):
+    """Latest change time across notes and tombstones."""
+    times = [changed_at(n) for n in metadata.values()] + list(tombstones.values())
+    return max(times, default="")
+
+
+# Declared before /{note_id} so "changes" isn't taken for a note id
+@router.get("/changes")
+async def get_note_changes(
+    since: Optional[str] = Query(None, description="Cursor returned by the previous sync"),
+):
+    """
+    Notes added or edited after the cursor, plus the ids deleted since then.
+
+    With no cursor, or one older than a tombstone that has since been dropped (deletions are
+    kept for the retention window), the response has "full": true and lists every note; the
+    client must then replace its catalog instead of merging into it. A cursor that is merely
+    old, with nothing changed since, still gets an empty delta.
+    """
+    metadata = scan_existing_notes()
+    tombstones = load_tombstones()
+    cursor = sync_cursor(metadata, tombstones)
+
+    full = not since or since < load_prune_watermark()
+    if full:
+        changed = list(metadata.values())
+        deleted = []
+    else:
+        changed = [n for n in metadata.values() if changed_at(n) > since]
+        deleted = [note_id for note_id, when in tombstones.items()
+                   if when > since and note_id not in metadata]
+
+    changed.sort(key=lambda x: x.get("upload_date", ""), reverse=True)
+
+    return JSONResponse(content={
+        "success": True,
+        "full": full,
+        "cursor": cursor or since or "",
+        "changed": changed,
+        "deleted": deleted
     })
 
 
@@ -188,6 +398,8 @@ async def view_note(note_id: str):
     }
     media_type = media_type_map.get(file_ext, "application/octet-stream")
     
+    # FileResponse (Starlette >= 0.39) answers Range / If-Range itself with 206 and sends
+    # ETag / Last-Modified, so viewers can fetch part of a file or resume a download
     return FileResponse(
         path=file_path,
         filename=note["name"],
@@ -196,6 +408,81 @@ async def view_note(note_id: str):
     )
 
 
+def preview_width(requested: int) -> int:
+    """Smallest preview width at least as wide as requested (the largest one past that)."""
+    for width in PREVIEW_WIDTHS:
+        if requested <= width:
+            return width
+    return PREVIEW_WIDTHS[-1]
+
+
+def render_preview(file_path: str, page: int, width: int, out_path: str):
+    """Render one page (1-based) of a PDF to a JPEG `width` pixels wide. Returns the page count."""
+    with pymupdf.open(file_path) as doc:
+        if page > doc.page_count:
+            return doc.page_count
+        pdf_page = doc[page - 1]
+        scale = width / pdf_page.rect.width
+        pix = pdf_page.get_pixmap(matrix=pymupdf.Matrix(scale, scale), alpha=False)
+        image = Image.frombytes("RGB", (pix.width, pix.height), pix.samples)
+        os.makedirs(PREVIEWS_PATH, exist_ok=True)
+        # Written under a temporary name so a concurrent request never serves half a file
+        tmp_path = f"{out_path}.{uuid.uuid4().hex}.tmp"
+        image.save(tmp_path, "JPEG", quality=80, optimize=True)
+        os.replace(tmp_path, out_path)
+        return doc.page_count
+
+
+def remove_previews(note_id: str):
+    """Drop every rendered page of a note."""
+    if not os.path.isdir(PREVIEWS_PATH):
+        return
+    for name in os.listdir(PREVIEWS_PATH):
+        if name.startswith(f"{note_id}-p"):
+            try:
+                os.remove(os.path.join(PREVIEWS_PATH, name))
+            except OSError:
+                pass
+
+
+@router.get("/preview/{note_id}")
+def preview_note(note_id: str, page: int = Query(1, ge=1), width: int = Query(720, ge=1)):
+    """One page of a PDF note as a JPEG, for showing while the file itself downloads.
+
+    A plain `def`: FastAPI runs it on its thread pool, so rendering doesn't stall other requests.
+    """
+    metadata = load_metadata()
+
+    if note_id not in metadata:
+        raise HTTPException(status_code=404, detail="Note not found")
+
+    note = metadata[note_id]
+    file_path = os.path.join(NOTES_BASE_PATH, note["file_path"])
+
+    if not os.path.exists(file_path):
+        raise HTTPException(status_code=404, detail="File not found on server")
+    if os.path.splitext(file_path)[1].lower() != ".pdf":
+        raise HTTPException(status_code=415, detail="Previews are only available for PDF notes")
+
+    width = preview_width(width)
+    mtime = int(os.path.getmtime(file_path))
+    out_path = os.path.join(PREVIEWS_PATH, f"{note_id}-p{page}-w{width}-{mtime}.jpg")
+    if not os.path.exists(out_path):
+        try:
+            page_count = render_preview(file_path, page, width, out_path)
+        except Exception as e:
+            raise HTTPException(status_code=500, detail=f"Error rendering preview: {str(e)}")
+        if page > page_count:
+            raise HTTPException(status_code=404, detail=f"Note has {page_count} pages")
+
+    # The name changes with the file, so the image itself never does
+    return FileResponse(
+        path=out_path,
+        media_type="image/jpeg",
+        headers={"Cache-Control": "public, max-age=604800"}
+    )
+
+
 @router.get("/download/{note_id}")
 async def download_note(note_id: str):
     """Download a specific note file."""
@@ -221,6 +508,7 @@ async def download_note(note_id: str):
     else:
         media_type = 'application/octet-stream'
 
+    # Ranged like /view: the app resumes interrupted downloads with Range + If-Range
     return FileResponse(
         path=file_path,
         filename=note["name"],
@@ -240,9 +528,8 @@ async def upload_note(
 ):
     """Upload a new note with metadata."""
     # Validate subject
-    valid_subjects = ['ai', 'ivp', 'se']
-    if subject.lower() not in valid_subjects:
-        raise HTTPException(status_code=400, detail=f"Invalid subject. Must be one of: {', '.join(valid_subjects)}")
+    if subject.lower() not in VALID_SUBJECTS:
+        raise HTTPException(status_code=400, detail=f"Invalid subject. Must be one of: {', '.join(VALID_SUBJECTS)}")
     
     # Validate file type (allow PDF primarily)
     allowed_types = ["application/pdf", "image/jpeg", "image/jpg", "image/png"]
@@ -251,27 +538,7 @@ async def upload_note(
     
     try:
         # Use original filename if name not provided
-        file_name = name if name else file.filename
-
-        # Sanitize filename to avoid path traversal and keep basename only
-        file_name = os.path.basename(file_name)
-
-        # Ensure subject folder exists
-        subject_path = os.path.join(NOTES_BASE_PATH, subject.lower())
-        os.makedirs(subject_path, exist_ok=True)
-
-        # Ensure file has an extension; keep original extension if user-provided name omitted it
-        original_ext = os.path.splitext(file.filename)[1]
-        provided_ext = os.path.splitext(file_name)[1]
-        if not provided_ext and original_ext:
-            file_name = f"{file_name}{original_ext}"
-
-        # Avoid filename collisions by appending a short uuid if file exists
-        file_path = os.path.join(subject_path, file_name)
-        if os.path.exists(file_path):
-            base, ext = os.path.splitext(file_name)
-            file_name = f"{base}_{uuid.uuid4().hex[:8]}{ext}"
-            file_path = os.path.join(subject_path, file_name)
+        file_name, file_path = reserve_note_path(subject, name if name else file.filename, file.filename)
 
         # Read full uploaded file bytes and write in binary mode
         contents = await file.read()
@@ -279,41 +546,259 @@ async def upload_note(
             buffer.write(contents)
         await file.close()
 
-        # Get file info
-        file_size = os.path.getsize(file_path)
-        file_ext = os.path.splitext(file_name)[1]
+        note = register_note(file_name, file_path, subject, year, uploaded_by, description, tags)
+
+        return JSONResponse(content={
+            "success": True,
+            "message": "Note uploaded successfully",
+            "note": note
+        })
 
-        # Create metadata entry
-        file_id = f"{subject.lower()}_{file_name.replace(' ', '_').replace('.', '_')}"
+    except Exception as e:
+        raise HTTPException(status_code=500, detail=f"Error uploading note: {str(e)}")
 
-        metadata = load_metadata()
-        tag_list = [t.strip() for t in tags.split(",")] if tags else []
 
-        metadata[file_id] = {
-            "id": file_id,
-            "name": file_name,
-            "subject": subject.upper(),
-            "year": year,
-            "uploaded_by": uploaded_by or "anonymous",
-            "upload_date": datetime.now().isoformat(),
-            "file_size": file_size,
-            "file_type": file_ext,
-            "file_path": f"{subject.lower()}/{file_name}",
-            "description": description,
-            "tags": tag_list
-        }
+def reserve_note_path(subject: str, file_name: str, original_name: Optional[str]):
+    """Pick the final name and path for a new note file inside its subject folder."""
+    # Sanitize filename to avoid path traversal and keep basename only
+    file_name = os.path.basename(file_name)
 
-        save_metadata(metadata)
+    # Ensure subject folder exists
+    subject_path = os.path.join(NOTES_BASE_PATH, subject.lower())
+    os.makedirs(subject_path, exist_ok=True)
+
+    # Ensure file has an extension; keep original extension if user-provided name omitted it
+    original_ext = os.path.splitext(original_name or "")[1]
+    provided_ext = os.path.splitext(file_name)[1]
+    if not provided_ext and original_ext:
+        file_name = f"{file_name}{original_ext}"
+
+    # Avoid filename collisions by appending a short uuid if file exists
+    file_path = os.path.join(subject_path, file_name)
+    if os.path.exists(file_path):
+        base, ext = os.path.splitext(file_name)
+        file_name = f"{base}_{uuid.uuid4().hex[:8]}{ext}"
+        file_path = os.path.join(subject_path, file_name)
+
+    return file_name, file_path
+
+
+def register_note(file_name, file_path, subject, year, uploaded_by, description, tags):
+    """Create the metadata entry for a note file already stored at file_path."""
+    # Get file info
+    file_size = os.path.getsize(file_path)
+    file_ext = os.path.splitext(file_name)[1]
+
+    # Create metadata entry
+    file_id = f"{subject.lower()}_{file_name.replace(' ', '_').replace('.', '_')}"
+
+    metadata = load_metadata()
+    tag_list = [t.strip() for t in tags.split(",")] if tags else []
+
+    metadata[file_id] = {
+        "id": file_id,
+        "name": file_name,
+        "subject": subject.upper(),
+        "year": year,
+        "uploaded_by": uploaded_by or "anonymous",
+        "upload_date": datetime.now().isoformat(),
+        "updated_at": datetime.now().isoformat(),
+        "file_size": file_size,
+        "file_type": file_ext,
+        "file_path": f"{subject.lower()}/{file_name}",
+        "description": description,
+        "tags": tag_list
+    }
+
+    save_metadata(metadata)
+
+    # The id may have been used by a note deleted earlier
+    tombstones = load_tombstones()
+    if tombstones.pop(file_id, None) is not None:
+        save_tombstones(tombstones)
+
+    return metadata[file_id]
+
+
+# ------------------ Resumable uploads ------------------
+#
+# POST /notes/uploads                  -> open a session, returns upload_id and chunk_size
+# PUT  /notes/uploads/{id}?offset=N    -> append one chunk (raw body, X-Chunk-SHA256 header)
+# GET  /notes/uploads/{id}             -> bytes received so far, to resume after a drop
+# POST /notes/uploads/{id}/complete    -> assemble into a note (idempotent)
+#
+# Chunks must arrive in order: a chunk at an offset below what's stored is an already
+# acknowledged retransmit and is acknowledged again; one past it is rejected with 409 and the
+# current offset so the client can realign.
+
+def session_paths(upload_id: str):
+    # upload ids are uuid4 hex; refuse anything else so they can't escape UPLOADS_PATH
+    if len(upload_id) != 32 or any(c not in "0123456789abcdef" for c in upload_id):
+        raise HTTPException(status_code=404, detail="Upload not found")
+    base = os.path.join(UPLOADS_PATH, upload_id)
+    return base + ".json", base + ".part"
+
+
+def load_session(upload_id: str):
+    session_file, part_file = session_paths(upload_id)
+    if not os.path.exists(session_file):
+        raise HTTPException(status_code=404, detail="Upload not found")
+    with open(session_file, 'r', encoding='utf-8') as f:
+        return json.load(f), part_file
+
+
+def save_session(session):
+    session_file, _ = session_paths(session["upload_id"])
+    tmp = session_file + ".tmp"
+    with open(tmp, 'w', encoding='utf-8') as f:
+        json.dump(session, f)
+    os.replace(tmp, session_file)
+
+
+def session_status(session, part_file):
+    received = session.get("total_size", 0) if session.get("note") else (
+        os.path.getsize(part_file) if os.path.exists(part_file) else 0)
+    return {
+        "success": True,
+        "upload_id": session["upload_id"],
+        "chunk_size": session["chunk_size"],
+        "total_size": session["total_size"],
+        "received": received,
+    }
+
+
+def purge_stale_sessions():
+    """Drop sessions nobody touched for UPLOAD_SESSION_TTL_HOURS."""
+    if not os.path.isdir(UPLOADS_PATH):
+        return
+    cutoff = datetime.now().timestamp() - UPLOAD_SESSION_TTL_HOURS * 3600
+    for entry in os.listdir(UPLOADS_PATH):
+        path = os.path.join(UPLOADS_PATH, entry)
+        try:
+            if os.path.getmtime(path) < cutoff:
+                os.remove(path)
+        except OSError:
+            pass
+
+
+@router.post("/uploads")
+async def start_upload(
+    total_size: int = Query(..., ge=1, description="Size of the whole file in bytes"),
+    file_name: str = Query(..., description="Original file name"),
+    subject: str = Query(..., description="Subject (ai, ivp, se)"),
+    content_type: str = Query("application/pdf"),
+    chunk_size: int = Query(1024 * 1024, ge=64 * 1024, le=MAX_CHUNK_SIZE),
+    year: Optional[str] = None,
+    uploaded_by: Optional[str] = None,
+    description: Optional[str] = None,
+    tags: Optional[str] = Query(None, description="Comma-separated tags")
+):
+    """Open a resumable upload session."""
+    if subject.lower() not in VALID_SUBJECTS:
+        raise HTTPException(status_code=400, detail=f"Invalid subject. Must be one of: {', '.join(VALID_SUBJECTS)}")
+    allowed_types = ["application/pdf", "image/jpeg", "image/jpg", "image/png"]
+    if content_type not in allowed_types:
+        raise HTTPException(status_code=400, detail=f"Invalid file type. Allowed types: PDF, JPEG, PNG")
+
+    os.makedirs(UPLOADS_PATH, exist_ok=True)
+    purge_stale_sessions()
+
+    session = {
+        "upload_id": uuid.uuid4().hex,
+        "file_name": os.path.basename(file_name),
+        "subject": subject.lower(),
+        "year": year,
+        "uploaded_by": uploaded_by,
+        "description": description,
+        "tags": tags,
+        "total_size": total_size,
+        "chunk_size": chunk_size,
+        "created_at": datetime.now().isoformat(),
+    }
+    save_session(session)
+    _, part_file = session_paths(session["upload_id"])
+    open(part_file, "wb").close()
+
+    return JSONResponse(content=session_status(session, part_file))
 
+
+@router.get("/uploads/{upload_id}")
+async def get_upload_status(upload_id: str):
+    """How many bytes of an upload the server holds."""
+    session, part_file = load_session(upload_id)
+    return JSONResponse(content=session_status(session, part_file))
+
+
+@router.put("/uploads/{upload_id}")
+async def upload_chunk(
+    upload_id: str,
+    request: Request,
+    offset: int = Query(..., ge=0),
+):
+    """Append one chunk at the given offset, after checking its SHA-256."""
+    session, part_file = load_session(upload_id)
+    if session.get("note"):
+        return JSONResponse(content=session_status(session, part_file))
+
+    received = os.path.getsize(part_file)
+    if offset > received:
+        return JSONResponse(status_code=409, content={**session_status(session, part_file), "success": False})
+
+    chunk = await request.body()
+    if not chunk or len(chunk) > session["chunk_size"]:
+        raise HTTPException(status_code=400, detail="Chunk is empty or larger than chunk_size")
+    if offset + len(chunk) > session["total_size"]:
+        raise HTTPException(status_code=400, detail="Chunk runs past total_size")
+
+    expected = request.headers.get("x-chunk-sha256", "").lower()
+    if expected and hashlib.sha256(chunk).hexdigest() != expected:
+        raise HTTPException(status_code=400, detail="Chunk checksum mismatch")
+
+    if offset + len(chunk) > received:
+        # Overwrite from the offset: covers both fresh appends and a partially stored retransmit
+        with open(part_file, "r+b") as f:
+            f.seek(offset)
+            f.write(chunk)
+    os.utime(os.path.join(UPLOADS_PATH, upload_id + ".json"))
+
+    return JSONResponse(content=session_status(session, part_file))
+
+
+@router.post("/uploads/{upload_id}/complete")
+async def complete_upload(upload_id: str):
+    """Turn a fully received upload into a note. Repeating the call returns the same note."""
+    session, part_file = load_session(upload_id)
+    if session.get("note"):
         return JSONResponse(content={
             "success": True,
             "message": "Note uploaded successfully",
-            "note": metadata[file_id]
+            "note": session["note"]
         })
 
+    received = os.path.getsize(part_file) if os.path.exists(part_file) else 0
+    if received != session["total_size"]:
+        return JSONResponse(status_code=409, content={**session_status(session, part_file), "success": False})
+
+    try:
+        file_name, file_path = reserve_note_path(session["subject"], session["file_name"], session["file_name"])
+        os.replace(part_file, file_path)
+        note = register_note(file_name, file_path, session["subject"], session["year"],
+                             session["uploaded_by"], session["description"], session["tags"])
+    except HTTPException:
+        raise
     except Exception as e:
         raise HTTPException(status_code=500, detail=f"Error uploading note: {str(e)}")
 
+    # Keep the session around (until it goes stale) so a retried complete gets the same answer
+    session["note"] = note
+    save_session(session)
+
+    return JSONResponse(content={
+        "success": True,
+        "message": "Note uploaded successfully",
+        "note": note
+    })
+
 
 @router.put("/{note_id}/metadata")
 async def update_note_metadata(
@@ -343,6 +828,7 @@ async def update_note_metadata(
         tag_list = [t.strip() for t in tags.split(",")] if tags else []
         metadata[note_id]["tags"] = tag_list
     
+    metadata[note_id]["updated_at"] = datetime.now().isoformat()
     save_metadata(metadata)
     
     return JSONResponse(content={
@@ -367,10 +853,15 @@ async def delete_note(note_id: str):
         # Delete file if it exists
         if os.path.exists(file_path):
             os.remove(file_path)
+        remove_previews(note_id)
         
         # Remove from metadata
         del metadata[note_id]
         save_metadata(metadata)
+
+        tombstones = load_tombstones()
+        tombstones[note_id] = datetime.now().isoformat()
+        save_tombstones(tombstones)
         
         return JSONResponse(content={
             "success": True,
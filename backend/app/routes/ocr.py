@@ -3,13 +3,111 @@ from fastapi.responses import JSONResponse
 from typing import Optional
 from app.utils.mistral_client import get_client
 from app.utils.ocr_utils import encode_document, get_mime_type, process_ocr_response, save_upload_to_temp
+from datetime import datetime
+import hashlib
+import json
 import os
+import re
 
 router = APIRouter(prefix="/ocr", tags=["ocr"])
 
+# Extracted timetables keyed by the SHA-256 of the source document and the page that was read,
+# so a PDF shared around a class only goes through OCR once per page. Only hashes computed here
+# from an uploaded PDF are used as keys: a rendered page can't be checked against the document
+# it claims to come from, so results for those are never shared.
+OCR_RESULTS_PATH = os.path.join(os.path.dirname(os.path.dirname(__file__)), "ocr_results")
+SHA256_RE = re.compile(r"^[0-9a-f]{64}$")
+
+
+def result_path(sha256: str, page_number: Optional[int]) -> str:
+    """page_number None is the whole document: every page, only stored when we OCR'd all of them."""
+    name = sha256 if page_number is None else f"{sha256}-p{page_number}"
+    return os.path.join(OCR_RESULTS_PATH, f"{name}.json")
+
+
+def load_result(sha256: str, page_number: Optional[int]):
+    """Stored result for a document hash and page, or None."""
+    path = result_path(sha256, page_number)
+    if not os.path.exists(path):
+        return None
+    try:
+        with open(path, 'r', encoding='utf-8') as f:
+            return json.load(f)
+    except Exception as e:
+        print(f"Error loading OCR result {sha256} page {page_number}: {e}")
+        return None
+
+
+def write_result(sha256: str, page_number: Optional[int], entry):
+    os.makedirs(OCR_RESULTS_PATH, exist_ok=True)
+    entry["stored_at"] = datetime.now().isoformat()
+    path = result_path(sha256, page_number)
+    tmp = path + ".tmp"
+    try:
+        with open(tmp, 'w', encoding='utf-8') as f:
+            json.dump(entry, f, ensure_ascii=False)
+        os.replace(tmp, path)
+    except Exception as e:
+        print(f"Error saving OCR result {sha256} page {page_number}: {e}")
+
+
+def store_page_result(sha256: str, page_number: int, total_pages: int, data):
+    """Remember one page's timetable. Empty extractions are not worth caching."""
+    if not data or not data.get("Timetable"):
+        return
+    write_result(sha256, page_number, {
+        "success": True,
+        "total_pages": total_pages,
+        "processed_page": page_number,
+        "data": data,
+    })
+
+
+def store_document_result(sha256: str, total_pages: int, results):
+    """Remember every page of a document we OCR'd in full, each page on its own too."""
+    for page in results:
+        store_page_result(sha256, page["page_number"], total_pages, page["data"])
+    if not any(page["data"] and page["data"].get("Timetable") for page in results):
+        return
+    write_result(sha256, None, {
+        "success": True,
+        "total_pages": total_pages,
+        "results": [{"page_number": page["page_number"], "data": page["data"]} for page in results],
+    })
+
+
+def file_sha256(path: str) -> str:
+    digest = hashlib.sha256()
+    with open(path, 'rb') as f:
+        for block in iter(lambda: f.read(1024 * 1024), b''):
+            digest.update(block)
+    return digest.hexdigest()
+
+
+@router.get("/result/{sha256}")
+async def get_result(sha256: str, page: Optional[int] = None):
+    """
+    Previously extracted timetable for a document, looked up by its SHA-256 (lowercase hex) and
+    1-based page. Without page, every page of the document, if it was ever extracted in full.
+    """
+    sha256 = sha256.lower()
+    if not SHA256_RE.match(sha256):
+        raise HTTPException(status_code=400, detail="Expected a hex SHA-256")
+    if page is not None and page < 1:
+        raise HTTPException(status_code=400, detail="Pages are numbered from 1")
+    entry = load_result(sha256, page)
+    if entry is None:
+        raise HTTPException(status_code=404, detail="No stored result for this document")
+    entry.pop("stored_at", None)
+    return JSONResponse(content=entry)
+
 
 @router.post("/extract-timetable")
 async def extract_timetable(file: UploadFile = File(...), page_number: Optional[int] = None):
+    """
+    Results for uploaded PDFs are stored under the hash of the upload (and the page read), so
+    they can be found again via /ocr/result. Images are not stored.
+    """
     allowed_types = ["image/jpeg", "image/jpg", "image/png", "application/pdf"]
     if file.content_type not in allowed_types:
         raise HTTPException(status_code=400, detail=f"Invalid file type. Allowed types: {', '.join(allowed_types)}")
@@ -20,6 +118,8 @@ async def extract_timetable(file: UploadFile = File(...), page_number: Optional[
         # save to temp
         tmp_path = save_upload_to_temp(file, suffix=suffix)
 
+        document_sha256 = file_sha256(tmp_path) if file.content_type == "application/pdf" else None
+
         base64_document = encode_document(tmp_path)
         mime_type = get_mime_type(file.content_type)
 
@@ -39,6 +139,8 @@ async def extract_timetable(file: UploadFile = File(...), page_number: Optional[
                 raise HTTPException(status_code=400, detail=f"Invalid page number. Document has {total_pages} pages.")
             markdown_output = ocr_response.pages[page_number - 1].markdown
             timetable_json = process_ocr_response(markdown_output)
+            if document_sha256:
+                store_page_result(document_sha256, page_number, total_pages, timetable_json)
             return JSONResponse(content={"success": True, "total_pages": total_pages, "processed_page": page_number, "data": timetable_json, "raw_markdown": markdown_output})
 
         all_results = []
@@ -46,6 +148,8 @@ async def extract_timetable(file: UploadFile = File(...), page_number: Optional[
             timetable_json = process_ocr_response(page.markdown)
             all_results.append({"page_number": i + 1, "data": timetable_json, "raw_markdown": page.markdown})
 
+        if document_sha256:
+            store_document_result(document_sha256, total_pages, all_results)
         return JSONResponse(content={"success": True, "total_pages": total_pages, "results": all_results})
 
     finally:
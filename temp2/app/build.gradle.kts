@@ -68,4 +68,58 @@ dependencies {
     // Material (for FAB)
     implementation("com.google.android.material:material:1.12.0")
 
-}
\ No newline at end of file
+}
+// ------------------ Room index ------------------
+// Floor plans bundled as drawables (cr301.png, tr302.png, crg1.png, ...) are listed in a generated
+// BundledRooms class, so RoomIndex can map a room to its R.drawable id without getIdentifier().
+
+abstract class GenerateRoomIndexTask : DefaultTask() {
+    @get:InputFiles
+    @get:PathSensitive(PathSensitivity.NAME_ONLY)
+    abstract val drawables: ConfigurableFileCollection
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun generate() {
+        val roomName = Regex("^(cc|cl|cr|tr)([a-z]*\\d+)$")
+        val rooms = drawables.files
+            .map { it.name.substringBefore('.') }
+            .filter { roomName.matches(it) }
+            .toSortedSet()
+
+        val out = outputDir.get().asFile.resolve("com/example/temp/data/BundledRooms.java")
+        out.parentFile.mkdirs()
+        out.writeText(buildString {
+            appendLine("package com.example.temp.data;")
+            appendLine()
+            appendLine("import com.example.temp.R;")
+            appendLine()
+            appendLine("/** Generated by :app:generateRoomIndex from res/drawable*. Do not edit. */")
+            appendLine("final class BundledRooms {")
+            appendLine("    /** Drawable names (room type + number), parallel to {@link #DRAWABLES}. */")
+            appendLine("    static final String[] NAMES = {")
+            rooms.forEach { appendLine("            \"$it\",") }
+            appendLine("    };")
+            appendLine()
+            appendLine("    static final int[] DRAWABLES = {")
+            rooms.forEach { appendLine("            R.drawable.$it,") }
+            appendLine("    };")
+            appendLine()
+            appendLine("    private BundledRooms() {}")
+            appendLine("}")
+        })
+    }
+}
+
+val generateRoomIndex = tasks.register<GenerateRoomIndexTask>("generateRoomIndex") {
+    drawables.from(fileTree("src/main/res") { include("drawable*/**") })
+    outputDir.set(layout.buildDirectory.dir("generated/source/roomIndex"))
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.java?.addGeneratedSourceDirectory(generateRoomIndex, GenerateRoomIndexTask::outputDir)
+    }
+}
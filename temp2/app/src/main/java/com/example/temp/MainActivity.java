@@ -9,6 +9,9 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowCompat;
 import androidx.core.view.WindowInsetsCompat;
 
+import com.example.temp.data.FloorPlanSync;
+import com.example.temp.data.UploadQueue;
+import com.example.temp.network.ApiClient;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
 import androidx.navigation.NavController;
@@ -25,6 +28,15 @@ public class MainActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
+        // Shared HTTP stack: build it with its disk cache and open a connection to the API
+        // host while the entry screen is showing.
+        ApiClient.init(getApplicationContext());
+        ApiClient.warmUp();
+        // Picks up uploads that were still queued or running when the process last died
+        UploadQueue.get(getApplicationContext());
+        // Keeps the floor plans on the device while on Wi-Fi, for offline room lookups
+        FloorPlanSync.get(getApplicationContext()).start();
+
         //
         // ✅ Enable full edge-to-edge UI
         //
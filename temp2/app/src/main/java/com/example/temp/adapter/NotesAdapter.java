@@ -4,6 +4,8 @@ import android.content.ActivityNotFoundException;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,34 +13,131 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.navigation.Navigation;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.temp.R;
+import com.example.temp.data.NotesSearchIndex;
 import com.example.temp.model.NotesModel;
+import com.example.temp.ui.main.NoteViewerFragment;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.ViewHolder> {
 
-    private final List<NotesModel> visibleList = new ArrayList<>();
-    private final List<NotesModel> fullList = new ArrayList<>();
+    // Index updates and queries run here, in order; shared by every instance
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private static final DiffUtil.ItemCallback<NotesModel> DIFF = new DiffUtil.ItemCallback<NotesModel>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull NotesModel oldItem, @NonNull NotesModel newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull NotesModel oldItem, @NonNull NotesModel newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    // Diffs on a background thread and only ever applies the latest submitted list
+    private final AsyncListDiffer<NotesModel> differ = new AsyncListDiffer<>(this, DIFF);
+    private final NotesSearchIndex index = new NotesSearchIndex();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Long> stableIds = new HashMap<>(); // main thread only
     private final Context context;
+    private String currentQuery = "";
+    // What a blank query shows: the pager's window, or the stored catalog when offline
+    private List<NotesModel> browseList = new ArrayList<>();
+    // Bumped by every new catalog or query; work for an older one is dropped
+    private volatile int generation;
 
     public NotesAdapter(Context context) {
         this.context = context;
+        setHasStableIds(true);
     }
 
+    /**
+     * Replaces the catalog searched by {@link #filter}, keeping the current query. Re-indexing
+     * and searching happen off the main thread, and only rows that actually changed are
+     * rebound, so a background refresh doesn't flash the whole list.
+     */
     public void setData(List<NotesModel> newData) {
-        fullList.clear();
-        visibleList.clear();
-        if (newData != null) {
-            fullList.addAll(newData);
-            visibleList.addAll(newData);
+        List<NotesModel> notes = newData != null ? newData : new ArrayList<>();
+        String query = currentQuery;
+        if (!isSearching()) {
+            SEARCH_EXECUTOR.execute(() -> index.setNotes(notes));
+            return;
+        }
+        int gen = ++generation;
+        SEARCH_EXECUTOR.execute(() -> {
+            // Never skipped: a later query needs the index up to date
+            index.setNotes(notes);
+            if (gen == generation) publish(gen, index.search(query));
+        });
+    }
+
+    /**
+     * Sets what's shown while the query is blank. May hold nulls for rows that aren't loaded;
+     * they're bound as placeholders.
+     */
+    public void setBrowseList(@NonNull List<NotesModel> items) {
+        browseList = items;
+        if (isSearching()) return;
+        generation++;
+        differ.submitList(items);
+    }
+
+    public boolean isSearching() {
+        return currentQuery != null && !currentQuery.trim().isEmpty();
+    }
+
+    /**
+     * Shows the notes matching {@code query}. The search runs in the background; if another
+     * query arrives before it starts or finishes, its result is dropped.
+     */
+    public void filter(String query) {
+        currentQuery = query;
+        int gen = ++generation;
+        if (!isSearching()) {
+            differ.submitList(browseList);
+            return;
         }
-        notifyDataSetChanged();
+        SEARCH_EXECUTOR.execute(() -> {
+            if (gen != generation) return;
+            List<NotesModel> result = index.search(query);
+            if (gen == generation) publish(gen, result);
+        });
+    }
+
+    private void publish(int gen, List<NotesModel> result) {
+        mainHandler.post(() -> {
+            if (gen == generation) differ.submitList(result);
+        });
+    }
+
+    @Override
+    public long getItemId(int position) {
+        NotesModel m = differ.getCurrentList().get(position);
+        // Placeholders get ids of their own that no note id can map to
+        if (m == null) return -1 - position;
+        String id = m.getId();
+        Long stable = stableIds.get(id);
+        if (stable == null) {
+            stable = (long) stableIds.size();
+            stableIds.put(id, stable);
+        }
+        return stable;
     }
 
     @NonNull
@@ -50,7 +149,14 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.ViewHolder>
 
     @Override
     public void onBindViewHolder(@NonNull NotesAdapter.ViewHolder holder, int position) {
-        NotesModel m = visibleList.get(position);
+        NotesModel m = differ.getCurrentList().get(position);
+        if (m == null) {
+            // Page not loaded (yet, or again after scrolling far away)
+            holder.noteName.setText("Loading…");
+            holder.noteMeta.setText("");
+            holder.itemView.setOnClickListener(null);
+            return;
+        }
 
         holder.noteName.setText(m.getName());
 
@@ -61,12 +167,12 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.ViewHolder>
         meta += " • Uploader: " + safe(m.getUploadedBy());
         holder.noteMeta.setText(meta);
 
-        holder.itemView.setOnClickListener(v -> openNote(m));
+        holder.itemView.setOnClickListener(v -> openNote(v, m));
     }
 
     @Override
     public int getItemCount() {
-        return visibleList.size();
+        return differ.getCurrentList().size();
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
@@ -80,25 +186,13 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.ViewHolder>
 
     private String safe(String s) { return s == null ? "" : s; }
 
-    public void filter(String query) {
-        visibleList.clear();
-        if (query == null || query.trim().isEmpty()) {
-            visibleList.addAll(fullList);
-        } else {
-            String q = query.toLowerCase();
-            for (NotesModel m : fullList) {
-                if ((m.getName() != null && m.getName().toLowerCase().contains(q)) ||
-                        (m.getSubject() != null && m.getSubject().toLowerCase().contains(q)) ||
-                        (m.getYear() != null && m.getYear().toLowerCase().contains(q)) ||
-                        (m.getUploadedBy() != null && m.getUploadedBy().toLowerCase().contains(q))) {
-                    visibleList.add(m);
-                }
-            }
+    private void openNote(View row, NotesModel m) {
+        // PDFs open in the app from the on-device cache
+        if (isPdf(m)) {
+            Navigation.findNavController(row).navigate(R.id.noteViewerFragment, NoteViewerFragment.args(m));
+            return;
         }
-        notifyDataSetChanged();
-    }
 
-    private void openNote(NotesModel m) {
         // API endpoint designed for viewing
         String viewUrl = "https://tempus-api.neurotechh.xyz/notes/view/" + m.getId();
 
@@ -115,6 +209,11 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.ViewHolder>
         }
     }
 
+    private static boolean isPdf(NotesModel m) {
+        String path = m.getFilePath() != null ? m.getFilePath() : m.getName();
+        return path != null && path.toLowerCase().endsWith(".pdf");
+    }
+
     private String encodePathPreservingSlashes(String rawPath) {
         if (rawPath == null) return "";
         String[] parts = rawPath.split("/");
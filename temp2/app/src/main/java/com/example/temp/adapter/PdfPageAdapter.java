@@ -0,0 +1,180 @@
+package com.example.temp.adapter;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pages of a local PDF, rendered with {@link PdfRenderer} as they scroll into view. Rendering
+ * happens on one background thread (a renderer can only have one page open at a time), and
+ * rendered pages are kept in a byte-bounded LRU so scrolling back doesn't render again.
+ * Only the first page is measured up front; other pages assume its shape until they're rendered,
+ * so a document with hundreds of pages shows its first page just as quickly.
+ * Call {@link #close} when the list goes away.
+ */
+public class PdfPageAdapter extends RecyclerView.Adapter<PdfPageAdapter.ViewHolder> {
+
+    private static final String TAG = "PdfPageAdapter";
+    private static final int MAX_RENDER_WIDTH = 1440;
+
+    private final ParcelFileDescriptor fd;
+    private final PdfRenderer renderer;
+    private final int[] pageWidths;
+    private final int[] pageHeights;
+    private final ExecutorService renderThread = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<Integer, Bitmap> rendered = new LruCache<Integer, Bitmap>(
+            (int) Math.min(32L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 8)) {
+        @Override
+        protected int sizeOf(Integer key, Bitmap value) {
+            return value.getAllocationByteCount();
+        }
+    };
+    private volatile boolean closed;
+    private RecyclerView recycler;
+
+    /** Takes ownership of {@code fd} once constructed. Parses the document, so call off the main thread. */
+    public PdfPageAdapter(@NonNull ParcelFileDescriptor fd) throws IOException {
+        this.fd = fd;
+        this.renderer = new PdfRenderer(fd);
+        int count = renderer.getPageCount();
+        // Written on the render thread, read on the main thread after the render posts
+        pageWidths = new int[count];
+        pageHeights = new int[count];
+        if (count == 0) return;
+        try (PdfRenderer.Page page = renderer.openPage(0)) {
+            pageWidths[0] = page.getWidth();
+            pageHeights[0] = page.getHeight();
+        } catch (RuntimeException e) {
+            renderer.close();
+            throw new IOException("Unreadable PDF", e);
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        recycler = recyclerView;
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        recycler = null;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ImageView image = new ImageView(parent.getContext());
+        image.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        image.setScaleType(ImageView.ScaleType.FIT_CENTER);
+        image.setBackgroundColor(Color.WHITE);
+        return new ViewHolder(image);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.page = position;
+        // Reserve the page's height straight away so the scrollbar and positions don't jump
+        int width = recycler != null ? recycler.getWidth() - recycler.getPaddingLeft() - recycler.getPaddingRight() : 0;
+        if (width > 0) setHeight(holder, position, width);
+
+        Bitmap bitmap = rendered.get(position);
+        holder.image.setImageBitmap(bitmap);
+        if (bitmap == null && width > 0) render(holder, position, Math.min(width, MAX_RENDER_WIDTH));
+    }
+
+    private void setHeight(ViewHolder holder, int position, int width) {
+        ViewGroup.LayoutParams lp = holder.image.getLayoutParams();
+        int height = width * heightOf(position) / widthOf(position);
+        if (lp.height == height) return;
+        lp.height = height;
+        holder.image.setLayoutParams(lp);
+    }
+
+    // Pages not measured yet are assumed to be shaped like the first one
+    private int widthOf(int position) {
+        return pageWidths[position] > 0 ? pageWidths[position] : pageWidths[0];
+    }
+
+    private int heightOf(int position) {
+        return pageHeights[position] > 0 ? pageHeights[position] : pageHeights[0];
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        holder.page = RecyclerView.NO_POSITION;
+        holder.image.setImageBitmap(null);
+    }
+
+    @Override
+    public int getItemCount() {
+        return pageWidths.length;
+    }
+
+    private void render(ViewHolder holder, int position, int width) {
+        renderThread.execute(() -> {
+            // Scrolled past before its turn came
+            if (closed || holder.page != position) return;
+            Bitmap bitmap = rendered.get(position);
+            if (bitmap == null) {
+                try (PdfRenderer.Page page = renderer.openPage(position)) {
+                    pageWidths[position] = page.getWidth();
+                    pageHeights[position] = page.getHeight();
+                    int height = width * page.getHeight() / page.getWidth();
+                    bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                    // Pages are transparent where nothing is drawn
+                    bitmap.eraseColor(Color.WHITE);
+                    page.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Could not render page " + position, e);
+                    return;
+                }
+                rendered.put(position, bitmap);
+            }
+            Bitmap result = bitmap;
+            mainHandler.post(() -> {
+                if (holder.page != position) return;
+                setHeight(holder, position, width);
+                holder.image.setImageBitmap(result);
+            });
+        });
+    }
+
+    /** Releases the renderer and file once pending renders are done. */
+    public void close() {
+        closed = true;
+        renderThread.execute(() -> {
+            renderer.close();
+            try {
+                fd.close();
+            } catch (IOException ignored) {
+            }
+            rendered.evictAll();
+        });
+        renderThread.shutdown();
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        final ImageView image;
+        volatile int page = RecyclerView.NO_POSITION;
+
+        ViewHolder(@NonNull ImageView image) {
+            super(image);
+            this.image = image;
+        }
+    }
+}
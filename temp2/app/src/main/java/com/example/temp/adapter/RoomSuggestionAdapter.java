@@ -0,0 +1,84 @@
+package com.example.temp.adapter;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.temp.data.RoomIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Suggestions for the room finder's {@code AutoCompleteTextView}. Queries go to
+ * {@link RoomIndex#search}; {@link Filter} runs them on its own worker thread and drops
+ * results of queries that were superseded while typing.
+ */
+public class RoomSuggestionAdapter extends ArrayAdapter<RoomIndex.Room> {
+
+    private static final int MAX_SUGGESTIONS = 8;
+
+    private final RoomIndex index;
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            FilterResults results = new FilterResults();
+            List<RoomIndex.Room> found = constraint == null ? new ArrayList<>()
+                    : index.search(constraint, MAX_SUGGESTIONS);
+            results.values = found;
+            results.count = found.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            setNotifyOnChange(false);
+            clear();
+            if (results.values != null) addAll((List<RoomIndex.Room>) results.values);
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public CharSequence convertResultToString(Object resultValue) {
+            return label((RoomIndex.Room) resultValue);
+        }
+    };
+
+    public RoomSuggestionAdapter(@NonNull Context context) {
+        super(context, android.R.layout.simple_dropdown_item_1line, new ArrayList<>());
+        this.index = RoomIndex.get(context);
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+
+    @NonNull
+    @Override
+    public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
+        TextView view = (TextView) super.getView(position, convertView, parent);
+        RoomIndex.Room room = getItem(position);
+        if (room != null) {
+            String floor = room.floor != null ? " • Floor " + room.floor.toUpperCase() : "";
+            view.setText(label(room) + " • " + room.typeName + floor);
+        }
+        view.setTextColor(Color.BLACK);
+        return view;
+    }
+
+    /** "CR 301" */
+    @NonNull
+    public static String label(@NonNull RoomIndex.Room room) {
+        return room.type.toUpperCase() + " " + room.number.toUpperCase();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.temp.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.temp.R;
+import com.example.temp.data.UploadQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/** Rows of the upload queue; tapping a failed row retries it. */
+public class UploadsAdapter extends RecyclerView.Adapter<UploadsAdapter.ViewHolder> {
+
+    public interface OnRetry {
+        void retry(@NonNull UploadQueue.Item item);
+    }
+
+    private final List<UploadQueue.Item> items = new ArrayList<>();
+    private final OnRetry onRetry;
+
+    public UploadsAdapter(OnRetry onRetry) {
+        this.onRetry = onRetry;
+    }
+
+    public void setItems(List<UploadQueue.Item> newItems) {
+        List<UploadQueue.Item> old = new ArrayList<>(items);
+        items.clear();
+        items.addAll(newItems);
+        DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return old.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return items.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int o, int n) {
+                return old.get(o).id.equals(items.get(n).id);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int o, int n) {
+                UploadQueue.Item a = old.get(o), b = items.get(n);
+                return a.state == b.state && a.sentBytes == b.sentBytes && a.totalBytes == b.totalBytes
+                        && a.bytesPerSecond == b.bytesPerSecond && a.etaMillis == b.etaMillis
+                        && Objects.equals(a.error, b.error);
+            }
+        }).dispatchUpdatesTo(this);
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_upload, parent, false);
+        return new ViewHolder(v);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        UploadQueue.Item item = items.get(position);
+        holder.name.setText(item.name);
+
+        int permille = item.totalBytes > 0 ? (int) (item.sentBytes * 1000 / item.totalBytes) : 0;
+        holder.progress.setIndeterminate(item.state == UploadQueue.State.UPLOADING && item.totalBytes == 0);
+        holder.progress.setProgress(item.state == UploadQueue.State.DONE ? 1000 : permille);
+
+        String status;
+        switch (item.state) {
+            case QUEUED: status = "Waiting"; break;
+            case UPLOADING: status = uploadingStatus(item, permille); break;
+            case DONE: status = "Uploaded ✅"; break;
+            default: status = "Failed: " + item.error + " (tap to retry)";
+        }
+        holder.status.setText(status);
+
+        holder.itemView.setOnClickListener(item.state == UploadQueue.State.FAILED
+                ? v -> onRetry.retry(item) : null);
+    }
+
+    /** e.g. "Uploading 42% • 1.3 MB/s • 0:35 left" */
+    private static String uploadingStatus(UploadQueue.Item item, int permille) {
+        StringBuilder sb = new StringBuilder("Uploading ").append(permille / 10).append('%');
+        if (item.bytesPerSecond > 0) {
+            sb.append(" • ").append(String.format(Locale.US, "%.1f MB/s", item.bytesPerSecond / (1024.0 * 1024.0)));
+        }
+        if (item.etaMillis >= 0) {
+            long seconds = item.etaMillis / 1000;
+            sb.append(" • ").append(String.format(Locale.US, "%d:%02d left", seconds / 60, seconds % 60));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView name, status;
+        ProgressBar progress;
+
+        public ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            name = itemView.findViewById(R.id.uploadName);
+            status = itemView.findViewById(R.id.uploadStatus);
+            progress = itemView.findViewById(R.id.uploadProgress);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.temp.data;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.temp.network.RequestScheduler;
+import com.example.temp.network.SingleFlight;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.CacheControl;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.Okio;
+
+/**
+ * Loads floor plan images, from bundled drawables or from {@code /floor/image/...}.
+ *
+ * <ul>
+ *   <li>Decoded bitmaps stay in a memory LRU bounded by bytes, keyed by source and target size.</li>
+ *   <li>Downloaded PNGs are streamed to a disk cache ({@code cacheDir/floor_plans}, LRU by
+ *   last use), never held whole in memory, and decoded from the file.</li>
+ *   <li>Decoding is subsampled ({@code inSampleSize}) to the size of the view showing it, and
+ *   reuses bitmaps that fell out of the memory cache through {@code inBitmap}.</li>
+ * </ul>
+ *
+ * Callers own what they're handed until they {@link #release} it; a bitmap is only recycled
+ * into the reuse pool once it's neither cached nor shown. Callbacks run on the main thread.
+ */
+public class FloorPlanLoader {
+
+    public interface Callback {
+        /** {@code bitmap} is null if the server has no such image. */
+        void onLoaded(@Nullable Bitmap bitmap, boolean fromNetwork);
+
+        void onFailure(@NonNull IOException e);
+    }
+
+    private static final long MAX_DISK_BYTES = 64L * 1024 * 1024;
+    private static final int MAX_MEMORY_BYTES = 32 * 1024 * 1024;
+    private static final int REUSE_POOL_SIZE = 3;
+    // The downloaded file is ours; keep OkHttp's HTTP cache from storing a second copy
+    private static final CacheControl NO_STORE = new CacheControl.Builder().noStore().build();
+
+    private static FloorPlanLoader instance;
+
+    private final Resources resources;
+    private final File diskDir;
+    private final LruCache<String, Bitmap> memory;
+    private final ExecutorService decoder = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // All guarded by this
+    private final Map<Bitmap, Integer> inUse = new IdentityHashMap<>();
+    private final Map<Bitmap, Boolean> evictedInUse = new IdentityHashMap<>();
+    private final List<Bitmap> reusable = new ArrayList<>();
+
+    private FloorPlanLoader(Context context) {
+        this.resources = context.getResources();
+        this.diskDir = new File(context.getCacheDir(), "floor_plans");
+        int budget = (int) Math.min(MAX_MEMORY_BYTES, Runtime.getRuntime().maxMemory() / 8);
+        this.memory = new LruCache<String, Bitmap>(budget) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                onDropped(oldValue);
+            }
+        };
+    }
+
+    public static synchronized FloorPlanLoader get(@NonNull Context context) {
+        if (instance == null) instance = new FloorPlanLoader(context.getApplicationContext());
+        return instance;
+    }
+
+    /** Loads a bundled drawable, subsampled for a {@code width} x {@code height} view. */
+    public SingleFlight.Subscription loadResource(int resId, int width, int height, @NonNull Callback callback) {
+        String key = "res:" + resId + "@" + width + "x" + height;
+        Handle handle = new Handle();
+        if (deliverCached(key, callback)) return handle;
+        decoder.execute(() -> {
+            if (handle.isCancelled()) return;
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            bounds.inScaled = false;
+            BitmapFactory.decodeResource(resources, resId, bounds);
+            BitmapFactory.Options options = decodeOptions(bounds, width, height);
+            options.inScaled = false;
+            Bitmap bitmap;
+            try {
+                bitmap = BitmapFactory.decodeResource(resources, resId, options);
+            } catch (IllegalArgumentException e) {
+                // The reuse candidate didn't fit after all
+                options.inBitmap = null;
+                bitmap = BitmapFactory.decodeResource(resources, resId, options);
+            }
+            deliver(handle, key, bitmap, false, callback);
+        });
+        return handle;
+    }
+
+    /**
+     * Loads a floor plan from the server: memory, then disk, then network (shared with any
+     * identical download already running, at the given priority).
+     */
+    public SingleFlight.Subscription load(@NonNull String url, int width, int height,
+                                         @NonNull RequestScheduler.Priority priority, @NonNull Callback callback) {
+        String key = url + "@" + width + "x" + height;
+        Handle handle = new Handle();
+        if (deliverCached(key, callback)) return handle;
+        decoder.execute(() -> {
+            if (handle.isCancelled()) return;
+            File file = diskFile(url);
+            if (file.exists()) {
+                //noinspection ResultOfMethodCallIgnored
+                file.setLastModified(System.currentTimeMillis());
+                deliver(handle, key, decodeFile(file, width, height), false, callback);
+                return;
+            }
+
+            handle.attach(download(url, priority, new SingleFlight.Listener<File>() {
+                @Override
+                public void onResult(File downloaded) {
+                    if (downloaded == null) {
+                        deliver(handle, key, null, true, callback);
+                        return;
+                    }
+                    decoder.execute(() -> {
+                        if (!handle.isCancelled()) {
+                            deliver(handle, key, decodeFile(downloaded, width, height), true, callback);
+                        }
+                    });
+                }
+
+                @Override
+                public void onFailure(@NonNull IOException e) {
+                    mainHandler.post(() -> {
+                        if (!handle.isCancelled()) callback.onFailure(e);
+                    });
+                }
+            }));
+        });
+        return handle;
+    }
+
+    /**
+     * Downloads {@code url} into the disk cache without decoding it. Shares the download with a
+     * {@link #load} of the same URL, so a user lookup joins (and raises) a running prefetch.
+     * The listener gets null if the server has no such image, and runs on an OkHttp thread.
+     */
+    public SingleFlight.Subscription download(@NonNull String url, @NonNull RequestScheduler.Priority priority,
+                                             @NonNull SingleFlight.Listener<File> listener) {
+        Request request = new Request.Builder().url(url).cacheControl(NO_STORE).build();
+        return SingleFlight.enqueue(request, priority, response -> store(url, response), listener);
+    }
+
+    /** Whether the encoded image for {@code url} is on disk. */
+    public boolean isCached(@NonNull String url) {
+        return diskFile(url).exists();
+    }
+
+    /** Forgets everything cached for {@code url}, e.g. because the server has a newer image. */
+    public void invalidate(@NonNull String url) {
+        for (String key : memory.snapshot().keySet()) {
+            if (key.startsWith(url + "@")) memory.remove(key);
+        }
+        //noinspection ResultOfMethodCallIgnored
+        diskFile(url).delete();
+    }
+
+    /** Hands back a bitmap the caller no longer shows. */
+    public synchronized void release(@Nullable Bitmap bitmap) {
+        if (bitmap == null) return;
+        Integer count = inUse.get(bitmap);
+        if (count == null) return;
+        if (count > 1) {
+            inUse.put(bitmap, count - 1);
+            return;
+        }
+        inUse.remove(bitmap);
+        if (evictedInUse.remove(bitmap) != null) offerReusable(bitmap);
+    }
+
+    /** Drops every decoded bitmap (e.g. under memory pressure). Files on disk stay. */
+    public void trimMemory() {
+        memory.evictAll();
+    }
+
+    // ------------------ Disk ------------------
+
+    /** Where the encoded image for {@code url} is (or would be) cached. */
+    @NonNull
+    public File diskFile(@NonNull String url) {
+        return new File(diskDir, ByteString.encodeUtf8(url).sha1().hex() + ".png");
+    }
+
+    /**
+     * Streams a response body into the disk cache. Returns the file, or null if the server has
+     * no such image. Closes the response.
+     */
+    @Nullable
+    File store(@NonNull String url, @NonNull Response response) throws IOException {
+        try (Response r = response) {
+            if (!r.isSuccessful() || r.body() == null) return null;
+            //noinspection ResultOfMethodCallIgnored
+            diskDir.mkdirs();
+            File target = diskFile(url);
+            File tmp = new File(target.getPath() + ".tmp");
+            try (BufferedSink sink = Okio.buffer(Okio.sink(tmp))) {
+                sink.writeAll(r.body().source());
+            } catch (IOException e) {
+                //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+                throw e;
+            }
+            if (!tmp.renameTo(target)) {
+                //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+                throw new IOException("Cannot write " + target);
+            }
+            trimDisk();
+            return target;
+        }
+    }
+
+    private void trimDisk() {
+        File[] files = diskDir.listFiles();
+        if (files == null) return;
+        long total = 0;
+        for (File f : files) total += f.length();
+        if (total <= MAX_DISK_BYTES) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : files) {
+            if (total <= MAX_DISK_BYTES) break;
+            total -= f.length();
+            //noinspection ResultOfMethodCallIgnored
+            f.delete();
+        }
+    }
+
+    // ------------------ Decoding ------------------
+
+    @Nullable
+    private Bitmap decodeFile(File file, int width, int height) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            // Not an image (an error page?); don't keep it around
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+        BitmapFactory.Options options = decodeOptions(bounds, width, height);
+        try {
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        } catch (IllegalArgumentException e) {
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        }
+    }
+
+    private BitmapFactory.Options decodeOptions(BitmapFactory.Options bounds, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            // View not laid out yet: the screen is an upper bound
+            DisplayMetrics metrics = resources.getDisplayMetrics();
+            width = metrics.widthPixels;
+            height = metrics.heightPixels;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize(bounds.outWidth, bounds.outHeight, width, height);
+        options.inMutable = true; // so it can be reused via inBitmap later
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        int w = (bounds.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+        int h = (bounds.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+        options.inBitmap = takeReusable((long) w * h * 4);
+        return options;
+    }
+
+    /** Largest power of two that keeps the image at least as big as the view on both axes. */
+    private static int sampleSize(int imageWidth, int imageHeight, int width, int height) {
+        int sample = 1;
+        while (imageWidth / (sample * 2) >= width && imageHeight / (sample * 2) >= height) sample *= 2;
+        return sample;
+    }
+
+    // ------------------ Memory ------------------
+
+    private boolean deliverCached(String key, Callback callback) {
+        Bitmap cached = memory.get(key);
+        if (cached == null) return false;
+        acquire(cached);
+        callback.onLoaded(cached, false);
+        return true;
+    }
+
+    private void deliver(Handle handle, String key, @Nullable Bitmap bitmap, boolean fromNetwork, Callback callback) {
+        if (bitmap != null) {
+            // Held for the caller before it's cached, so an early eviction can't pool it
+            acquire(bitmap);
+            memory.put(key, bitmap);
+        }
+        mainHandler.post(() -> {
+            if (handle.isCancelled()) {
+                release(bitmap);
+                return;
+            }
+            callback.onLoaded(bitmap, fromNetwork);
+        });
+    }
+
+    private synchronized void acquire(Bitmap bitmap) {
+        Integer count = inUse.get(bitmap);
+        inUse.put(bitmap, count == null ? 1 : count + 1);
+    }
+
+    private synchronized void onDropped(Bitmap bitmap) {
+        if (inUse.containsKey(bitmap)) {
+            evictedInUse.put(bitmap, Boolean.TRUE);
+        } else {
+            offerReusable(bitmap);
+        }
+    }
+
+    // Caller holds this
+    private void offerReusable(Bitmap bitmap) {
+        if (!bitmap.isMutable() || bitmap.isRecycled()) return;
+        reusable.add(bitmap);
+        if (reusable.size() > REUSE_POOL_SIZE) reusable.remove(0).recycle();
+    }
+
+    /** Smallest pooled bitmap with room for {@code bytes}, removed from the pool; or null. */
+    @Nullable
+    private synchronized Bitmap takeReusable(long bytes) {
+        Bitmap best = null;
+        for (Bitmap candidate : reusable) {
+            if (candidate.getAllocationByteCount() >= bytes
+                    && (best == null || candidate.getAllocationByteCount() < best.getAllocationByteCount())) {
+                best = candidate;
+            }
+        }
+        if (best != null) reusable.remove(best);
+        return best;
+    }
+
+    /** Cancellation handle for one load; cancels the download if nobody else wants it. */
+    private static class Handle implements SingleFlight.Subscription {
+        private boolean cancelled;
+        private SingleFlight.Subscription download;
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        void attach(SingleFlight.Subscription subscription) {
+            boolean cancelNow;
+            synchronized (this) {
+                download = subscription;
+                cancelNow = cancelled;
+            }
+            if (cancelNow) subscription.cancel();
+        }
+
+        @Override
+        public void cancel() {
+            SingleFlight.Subscription toCancel;
+            synchronized (this) {
+                if (cancelled) return;
+                cancelled = true;
+                toCancel = download;
+            }
+            if (toCancel != null) toCancel.cancel();
+        }
+    }
+}
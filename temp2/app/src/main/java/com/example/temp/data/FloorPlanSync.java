@@ -0,0 +1,237 @@
+package com.example.temp.data;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.temp.model.FloorRoom;
+import com.example.temp.network.ApiClient;
+import com.example.temp.network.FloorsResponse;
+import com.example.temp.network.RequestScheduler;
+import com.example.temp.network.RetrofitClient;
+import com.example.temp.network.SingleFlight;
+import com.example.temp.network.TempusJson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps every floor plan on the device so room lookups work offline and without a round trip.
+ *
+ * <p>A sync pulls the {@code /floor/} manifest, compares each room's {@code file_size} and
+ * {@code last_updated} with what was downloaded last time, and fetches only the images that
+ * are new or changed (into {@link FloorPlanLoader}'s disk cache), one at a time at
+ * {@link RequestScheduler.Priority#PREFETCH}. Rooms gone from the manifest are dropped.
+ *
+ * <p>Syncs only run on unmetered networks: once at startup if the device is on one, and again
+ * whenever it joins one. Stopping halfway is fine; the next sync picks up what's missing.
+ */
+public class FloorPlanSync {
+
+    private static final String TAG = "FloorPlanSync";
+    // Don't hit the manifest more often than this just because Wi-Fi flapped
+    private static final long MIN_INTERVAL_MS = 30 * 60 * 1000L;
+
+    /** What was downloaded for one image, as the manifest described it then. */
+    private static class Entry {
+        long fileSize;
+        String lastUpdated;
+
+        boolean matches(FloorRoom room) {
+            return fileSize == room.getFileSize() && Objects.equals(lastUpdated, room.getLastUpdated());
+        }
+    }
+
+    private static FloorPlanSync instance;
+
+    private final ConnectivityManager connectivity;
+    private final FloorPlanLoader loader;
+    private final RoomIndex roomIndex;
+    private final File stateFile;
+
+    // Guarded by this
+    private Map<String, Entry> synced;            // image_path -> what we have
+    private final ArrayDeque<FloorRoom> pending = new ArrayDeque<>();
+    private boolean started;
+    private boolean running;
+    private long lastStart = -MIN_INTERVAL_MS;
+
+    private FloorPlanSync(Context context) {
+        this.connectivity = context.getSystemService(ConnectivityManager.class);
+        this.loader = FloorPlanLoader.get(context);
+        this.roomIndex = RoomIndex.get(context);
+        this.stateFile = new File(context.getFilesDir(), "floor_sync.json");
+    }
+
+    public static synchronized FloorPlanSync get(@NonNull Context context) {
+        if (instance == null) instance = new FloorPlanSync(context.getApplicationContext());
+        return instance;
+    }
+
+    /**
+     * Syncs now if on an unmetered network, and again each time the device joins one. Safe to
+     * call from every {@code onCreate}; only the first call registers for network changes.
+     */
+    public void start() {
+        sync();
+        synchronized (this) {
+            if (started) return;
+            started = true;
+        }
+        connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities caps) {
+                if (caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)) sync();
+            }
+        });
+    }
+
+    /** Starts a sync unless one is running, ran recently, or the network is metered. */
+    public void sync() {
+        synchronized (this) {
+            long now = SystemClock.elapsedRealtime();
+            if (running || now - lastStart < MIN_INTERVAL_MS || !unmetered()) return;
+            running = true;
+            lastStart = now;
+        }
+
+        SingleFlight.enqueue(RetrofitClient.api().getFloors().request(), RequestScheduler.Priority.PREFETCH,
+                RoomIndex::parseFloors, new SingleFlight.Listener<FloorsResponse>() {
+                    @Override
+                    public void onResult(FloorsResponse manifest) {
+                        roomIndex.update(manifest);
+                        plan(manifest);
+                        next();
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull IOException e) {
+                        Log.w(TAG, "Manifest fetch failed", e);
+                        finish();
+                    }
+                });
+    }
+
+    /** Queues the rooms whose image is missing or out of date, and forgets removed ones. */
+    private synchronized void plan(FloorsResponse manifest) {
+        if (synced == null) synced = load();
+        Map<String, FloorRoom> current = new HashMap<>();
+        if (manifest.floors != null) {
+            for (List<FloorRoom> rooms : manifest.floors.values()) {
+                for (FloorRoom room : rooms) {
+                    if (room.getImagePath() != null) current.put(room.getImagePath(), room);
+                }
+            }
+        }
+
+        synced.keySet().retainAll(current.keySet());
+        for (String path : new HashMap<>(synced).keySet()) {
+            // Cache was cleared behind our back (e.g. by the system): fetch again
+            if (!loader.isCached(imageUrl(path))) synced.remove(path);
+        }
+        pending.clear();
+        for (FloorRoom room : current.values()) {
+            Entry have = synced.get(room.getImagePath());
+            if (have != null && have.matches(room)) continue;
+            if (have != null) loader.invalidate(imageUrl(room.getImagePath()));
+            pending.add(room);
+        }
+        save();
+        Log.d(TAG, pending.size() + " of " + current.size() + " floor plans to fetch");
+    }
+
+    /** Downloads the next queued image, or ends the sync. */
+    private void next() {
+        FloorRoom room;
+        synchronized (this) {
+            room = pending.poll();
+        }
+        if (room == null || !unmetered()) {
+            finish();
+            return;
+        }
+
+        String path = room.getImagePath();
+        loader.download(imageUrl(path), RequestScheduler.Priority.PREFETCH, new SingleFlight.Listener<File>() {
+            @Override
+            public void onResult(File file) {
+                if (file != null) {
+                    Entry entry = new Entry();
+                    entry.fileSize = room.getFileSize();
+                    entry.lastUpdated = room.getLastUpdated();
+                    synchronized (FloorPlanSync.this) {
+                        synced.put(path, entry);
+                        save();
+                    }
+                }
+                next();
+            }
+
+            @Override
+            public void onFailure(@NonNull IOException e) {
+                // Probably lost the network; leave the rest for the next sync
+                Log.w(TAG, "Prefetch of " + path + " failed", e);
+                finish();
+            }
+        });
+    }
+
+    private synchronized void finish() {
+        running = false;
+        pending.clear();
+    }
+
+    private boolean unmetered() {
+        NetworkCapabilities caps = connectivity.getNetworkCapabilities(connectivity.getActiveNetwork());
+        return caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+    }
+
+    /** Same URL RoomIndex hands ClassroomFragment, so lookups hit the prefetched file. */
+    private static String imageUrl(String imagePath) {
+        return ApiClient.getNavigationEndpoint() + "/image/" + imagePath;
+    }
+
+    private Map<String, Entry> load() {
+        if (!stateFile.exists()) return new HashMap<>();
+        try (Reader reader = new InputStreamReader(new FileInputStream(stateFile), StandardCharsets.UTF_8)) {
+            Map<String, Entry> loaded = TempusJson.gson().fromJson(reader,
+                    new TypeToken<Map<String, Entry>>() {}.getType());
+            return loaded != null ? new HashMap<>(loaded) : new HashMap<>();
+        } catch (Exception e) {
+            // Worst case everything is fetched once more
+            return new HashMap<>();
+        }
+    }
+
+    // Caller holds this
+    private void save() {
+        File tmp = new File(stateFile.getPath() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            TempusJson.gson().toJson(synced, out);
+        } catch (IOException | RuntimeException e) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        tmp.renameTo(stateFile);
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.temp.data;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.temp.model.NotesModel;
+import com.example.temp.network.ApiClient;
+import com.example.temp.network.RequestScheduler;
+import com.example.temp.network.SingleFlight;
+import com.example.temp.utils.CacheHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+
+/**
+ * Note files kept on the device ({@code cacheDir/notes}), so a note opened once opens again
+ * instantly and offline. Files come from {@code /notes/download/{id}}, are streamed straight to
+ * disk with ranged, resumable requests, and are evicted least-recently-opened first once the
+ * directory passes {@link #MAX_DISK_BYTES}.
+ *
+ * <p>A file is keyed by the note's id, size and upload date, so a re-uploaded note is fetched
+ * again and the outdated copy simply ages out.
+ */
+public class NoteFileCache {
+
+    private static final long MAX_DISK_BYTES = 256L * 1024 * 1024;
+    // OkHttp's cache would hold a second copy of every file
+    private static final CacheControl NO_STORE = new CacheControl.Builder().noStore().build();
+
+    private static final int MAX_RESUMES = 4;
+    private static final long SEGMENT = 8192;
+    private static final long PROGRESS_STEP = 256 * 1024;
+
+    /** Bytes of a download so far; {@code total} is -1 when the server didn't say. */
+    public interface ProgressListener {
+        void onProgress(long bytes, long total);
+    }
+
+    private static NoteFileCache instance;
+
+    private final Context context;
+    private final File dir;
+    // Running downloads by target file name, so opening the same note twice shares one
+    private final Map<String, Transfer> transfers = new HashMap<>();
+
+    private NoteFileCache(Context context) {
+        this.context = context;
+        this.dir = new File(context.getCacheDir(), "notes");
+    }
+
+    public static synchronized NoteFileCache get(@NonNull Context context) {
+        if (instance == null) instance = new NoteFileCache(context.getApplicationContext());
+        return instance;
+    }
+
+    /** The cached file for {@code note}, marked as just used, or null if it isn't on disk. */
+    @Nullable
+    public File cached(@NonNull NotesModel note) {
+        File file = fileFor(note);
+        if (!file.exists()) return null;
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Downloads {@code note} into the cache, joining a download of it already running. Check
+     * {@link #cached} first; this always goes to the network. Both listeners run on an OkHttp
+     * dispatcher thread. Cancelling (once every joined caller has) keeps the bytes received so
+     * far, and the next download of the same file resumes from there.
+     */
+    public SingleFlight.Subscription download(@NonNull NotesModel note, @Nullable ProgressListener progress,
+                                             @NonNull SingleFlight.Listener<File> listener) {
+        File target = fileFor(note);
+        Transfer transfer;
+        boolean start = false;
+        synchronized (transfers) {
+            transfer = transfers.get(target.getName());
+            if (transfer == null) {
+                transfer = new Transfer(downloadUrl(note.getId()), target);
+                transfers.put(target.getName(), transfer);
+                transfer.subscribers.add(listener);
+                if (progress != null) transfer.progressListeners.add(progress);
+                start = true;
+            } else {
+                // Everyone had left but it hasn't wound down yet: take it over rather than
+                // starting a second writer on the same file
+                if (transfer.cancelled) {
+                    transfer.cancelled = false;
+                    transfer.revived = true;
+                }
+                transfer.subscribers.add(listener);
+                if (progress != null) transfer.progressListeners.add(progress);
+            }
+        }
+        if (start) transfer.next();
+        Transfer joined = transfer;
+        return () -> joined.unsubscribe(listener, progress);
+    }
+
+    @NonNull
+    public static String downloadUrl(@NonNull String noteId) {
+        return ApiClient.getNotesEndpoint() + "/download/" + noteId;
+    }
+
+    /** A page (1-based) of a PDF note rendered by the server as a JPEG about {@code width} pixels wide. */
+    @NonNull
+    public static String previewUrl(@NonNull String noteId, int page, int width) {
+        return ApiClient.getNotesEndpoint() + "/preview/" + noteId + "?page=" + page + "&width=" + width;
+    }
+
+    @NonNull
+    File fileFor(@NonNull NotesModel note) {
+        String key = note.getId() + "|" + note.getFileSize() + "|" + note.getUploadDate();
+        return new File(dir, ByteString.encodeUtf8(key).sha1().hex() + extension(note));
+    }
+
+    /**
+     * One file being fetched. Bytes go to {@code <file>.part}; when there already is one, the
+     * request asks only for the rest ({@code Range: bytes=N-}), guarded by {@code If-Range} with
+     * the validator of the first attempt, so a file changed on the server is fetched whole
+     * rather than spliced. A connection dropped mid-body is resumed the same way.
+     *
+     * <p>Every attempt goes through {@link RequestScheduler} as USER_BLOCKING (someone is
+     * watching the progress), and the body is written out in the callback, so the call holds its
+     * slot, and keeps prefetches out of the way, until the bytes are on disk.
+     */
+    private final class Transfer implements Callback {
+        final String url;
+        final File target;
+        final File part;
+        final String validatorKey;
+        final List<SingleFlight.Listener<File>> subscribers = new ArrayList<>(); // guarded by transfers
+        final List<ProgressListener> progressListeners = new CopyOnWriteArrayList<>();
+        volatile boolean cancelled;
+        boolean revived;           // guarded by transfers
+        RequestScheduler.Job job;  // guarded by transfers
+        // Attempts run one after another, each started from the previous one's callback
+        int attempts;
+        long offset;
+        IOException last;
+        long lastReported;
+
+        Transfer(String url, File target) {
+            this.url = url;
+            this.target = target;
+            this.part = new File(target.getPath() + ".part");
+            this.validatorKey = "note_file_validator_" + target.getName();
+        }
+
+        /** Starts the next attempt, or ends the transfer if there is no point in another. */
+        void next() {
+            if (cancelled || attempts >= MAX_RESUMES) {
+                end(null, cancelled ? new IOException("Canceled")
+                        : last != null ? last : new IOException("Download did not finish"));
+                return;
+            }
+            attempts++;
+            //noinspection ResultOfMethodCallIgnored
+            dir.mkdirs();
+            offset = part.length();
+            String validator = CacheHelper.getJson(context, validatorKey);
+            if (offset > 0 && validator == null) {
+                // Can't prove the bytes on disk belong to the current file
+                offset = 0;
+            }
+            // Identity encoding: offsets and Content-Length then count the file's own bytes
+            Request.Builder builder = new Request.Builder().url(url).cacheControl(NO_STORE)
+                    .header("Accept-Encoding", "identity");
+            if (offset > 0) {
+                builder.header("Range", "bytes=" + offset + "-").header("If-Range", validator);
+            }
+            RequestScheduler.Job started = RequestScheduler.enqueue(ApiClient.getClient().newCall(builder.build()),
+                    RequestScheduler.Priority.USER_BLOCKING, this);
+            boolean cancelNow;
+            synchronized (transfers) {
+                job = started;
+                revived = false;
+                cancelNow = cancelled;
+            }
+            if (cancelNow) started.cancel();
+        }
+
+        @Override
+        public void onFailure(@NonNull Call call, @NonNull IOException e) {
+            failed(e);
+        }
+
+        @Override
+        public void onResponse(@NonNull Call call, @NonNull Response response) {
+            long before = part.length();
+            boolean complete;
+            try (Response r = response) {
+                complete = writeBody(r);
+            } catch (IOException e) {
+                // Only worth another go if this attempt got somewhere
+                if (part.length() == before) attempts = MAX_RESUMES;
+                failed(e);
+                return;
+            }
+            if (!complete) {
+                next();
+                return;
+            }
+            if (!part.renameTo(target)) {
+                end(null, new IOException("Cannot write " + target));
+                return;
+            }
+            CacheHelper.clear(context, validatorKey);
+            trim(target);
+            end(target, null);
+        }
+
+        private void failed(IOException e) {
+            last = e;
+            next();
+        }
+
+        private void end(@Nullable File result, @Nullable IOException error) {
+            List<SingleFlight.Listener<File>> listeners;
+            synchronized (transfers) {
+                // Cancelled, then joined again before it wound down: carry on from the .part
+                if (result == null && revived && !cancelled) {
+                    attempts = 0;
+                    last = null;
+                    listeners = null;
+                } else {
+                    transfers.remove(target.getName());
+                    listeners = new ArrayList<>(subscribers);
+                }
+            }
+            if (listeners == null) {
+                next();
+                return;
+            }
+            for (SingleFlight.Listener<File> l : listeners) {
+                if (result != null) l.onResult(result);
+                else l.onFailure(error);
+            }
+        }
+
+        /** Appends the response to {@link #part}; returns true once it holds the whole file. */
+        private boolean writeBody(Response r) throws IOException {
+            if (r.code() == 416 && offset > 0) {
+                // Nothing left past what we have (or the file shrank); start over next time
+                CacheHelper.clear(context, validatorKey);
+                //noinspection ResultOfMethodCallIgnored
+                part.delete();
+                throw new IOException("Range not satisfiable at " + offset);
+            }
+            if (!r.isSuccessful() || r.body() == null) {
+                throw new IOException("HTTP " + r.code() + " for " + r.request().url());
+            }
+            boolean append = r.code() == 206;
+            long start = append ? contentRangeStart(r) : 0;
+            if (append && start != offset) throw new IOException("Server sent bytes from " + start + ", wanted " + offset);
+            long length = r.body().contentLength();
+            long total = length < 0 ? -1 : start + length;
+
+            String etag = r.header("ETag");
+            String validatorNow = etag != null && !etag.startsWith("W/") ? etag : r.header("Last-Modified");
+            if (!append) {
+                // Full body: the file is new or changed since the partial copy was made
+                if (validatorNow != null) CacheHelper.saveJson(context, validatorKey, validatorNow);
+                else CacheHelper.clear(context, validatorKey);
+            }
+
+            try (BufferedSink sink = Okio.buffer(append ? Okio.appendingSink(part) : Okio.sink(part))) {
+                BufferedSource source = r.body().source();
+                long written = start;
+                notifyProgress(written, total, true);
+                long read;
+                while ((read = source.read(sink.getBuffer(), SEGMENT)) != -1) {
+                    sink.emitCompleteSegments();
+                    written += read;
+                    notifyProgress(written, total, false);
+                }
+            }
+            // Without a length, a body that ended cleanly is the whole file
+            return total < 0 || part.length() == total;
+        }
+
+        /** Reports every {@link #PROGRESS_STEP} bytes, not every socket read. */
+        private void notifyProgress(long bytes, long total, boolean force) {
+            if (!force && bytes - lastReported < PROGRESS_STEP && bytes != total) return;
+            lastReported = bytes;
+            for (ProgressListener l : progressListeners) l.onProgress(bytes, total);
+        }
+
+        void unsubscribe(SingleFlight.Listener<File> listener, @Nullable ProgressListener progress) {
+            if (progress != null) progressListeners.remove(progress);
+            RequestScheduler.Job running;
+            synchronized (transfers) {
+                subscribers.remove(listener);
+                if (!subscribers.isEmpty()) return;
+                // Stays registered until it winds down, so nobody else writes the .part meanwhile
+                cancelled = true;
+                running = job;
+            }
+            if (running != null) running.cancel();
+        }
+    }
+
+    /** First byte offset of a 206 response, from {@code Content-Range: bytes a-b/total}. */
+    private static long contentRangeStart(Response response) throws IOException {
+        String range = response.header("Content-Range");
+        if (range == null || !range.startsWith("bytes ")) throw new IOException("206 without Content-Range");
+        try {
+            return Long.parseLong(range.substring(6, range.indexOf('-')).trim());
+        } catch (RuntimeException e) {
+            throw new IOException("Bad Content-Range: " + range, e);
+        }
+    }
+
+    /** Evicts the least recently opened files, never {@code keep}, until under the limit. */
+    private void trim(File keep) {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        long total = 0;
+        for (File f : files) total += f.length();
+        if (total <= MAX_DISK_BYTES) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : files) {
+            if (total <= MAX_DISK_BYTES) break;
+            if (f.equals(keep) || isDownloading(f)) continue;
+            total -= f.length();
+            //noinspection ResultOfMethodCallIgnored
+            f.delete();
+        }
+    }
+
+    private boolean isDownloading(File f) {
+        String name = f.getName();
+        if (!name.endsWith(".part")) return false;
+        synchronized (transfers) {
+            return transfers.containsKey(name.substring(0, name.length() - ".part".length()));
+        }
+    }
+
+    private static String extension(NotesModel note) {
+        String path = note.getFilePath() != null ? note.getFilePath() : note.getName();
+        if (path == null) return "";
+        int dot = path.lastIndexOf('.');
+        return dot >= 0 && path.length() - dot <= 6 ? path.substring(dot).toLowerCase() : "";
+    }
+}
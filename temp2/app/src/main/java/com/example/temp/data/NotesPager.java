@@ -0,0 +1,252 @@
+package com.example.temp.data;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.temp.model.NotesModel;
+import com.example.temp.network.NotesPageResponse;
+import com.example.temp.network.RequestScheduler;
+import com.example.temp.network.RetrofitClient;
+import com.example.temp.network.SingleFlight;
+import com.example.temp.network.TempusJson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import okhttp3.Response;
+
+/**
+ * Pages through the notes listing ({@code GET /notes/?limit&cursor}) for the browse list, so
+ * the first screen needs one page instead of the whole catalog.
+ *
+ * <p>Call {@link #loadAround} with the visible range as the list scrolls: the next page is
+ * fetched once the last visible row is within {@code prefetchDistance} of the end, and pages
+ * that were dropped are fetched again when they come back into view. At most
+ * {@code maxPages} pages are held; the one farthest from the visible range goes first. Only the
+ * cursor and the first and last note id of every page reached so far are kept, which is what
+ * lets dropped pages be re-fetched. If a re-fetched page no longer starts and ends with the same
+ * notes, notes were added or deleted before it meanwhile and the pages after it no longer line
+ * up: those are dropped and fetched again from the new page on.
+ *
+ * <p>Listeners get immutable snapshots on the main thread. Positions whose page isn't in memory
+ * hold null. Not thread-safe: call everything on the main thread.
+ */
+public class NotesPager {
+
+    public interface Listener {
+        /** The list changed. {@code items} never changes afterwards. */
+        void onItems(@NonNull List<NotesModel> items);
+
+        /** A page failed to load; {@code hasData} says whether anything was loaded before. */
+        void onLoadFailed(@NonNull IOException e, boolean hasData);
+    }
+
+    public static final int DEFAULT_PAGE_SIZE = 40;
+    public static final int DEFAULT_PREFETCH_DISTANCE = 20;
+    public static final int DEFAULT_MAX_PAGES = 5;
+
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final int maxPages;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Cursor to fetch page i with; entry 0 is the first page (null cursor)
+    private final List<String> pageCursors = new ArrayList<>();
+    private final Map<Integer, List<NotesModel>> pages = new HashMap<>();
+    private final Map<Integer, SingleFlight.Subscription> loading = new HashMap<>();
+    // First and last note id of each page reached so far, as first fetched
+    private final Map<Integer, String[]> pageBounds = new HashMap<>();
+    private int count;            // rows in every page reached so far
+    private boolean endReached;
+    private int firstVisiblePage;
+    private int lastVisible;
+    private int generation;       // bumped by refresh(); older loads are ignored
+
+    public NotesPager(@NonNull Listener listener) {
+        this(DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE, DEFAULT_MAX_PAGES, listener);
+    }
+
+    public NotesPager(int pageSize, int prefetchDistance, int maxPages, @NonNull Listener listener) {
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        // Must at least cover the screen plus the page being prefetched
+        this.maxPages = Math.max(2, maxPages);
+        this.listener = listener;
+        pageCursors.add(null);
+    }
+
+    /** Fetches whatever the visible rows {@code first..last} (and the prefetch margin) need. */
+    public void loadAround(int first, int last) {
+        firstVisiblePage = Math.max(0, first) / pageSize;
+        lastVisible = last;
+        int from = Math.max(0, first - prefetchDistance) / pageSize;
+        int to = Math.max(0, last + prefetchDistance) / pageSize;
+        for (int page = from; page <= to && page < pageCursors.size(); page++) {
+            if (!pages.containsKey(page)) load(page);
+        }
+    }
+
+    /** Drops everything and starts over from the first page, e.g. after an upload. */
+    public void refresh() {
+        for (SingleFlight.Subscription s : loading.values()) s.cancel();
+        loading.clear();
+        generation++;
+        // Keep showing the old rows until the new first page replaces them
+        int keep = pageCursors.size();
+        load(0);
+        if (keep > 1) pageCursors.subList(1, keep).clear();
+        endReached = false;
+    }
+
+    /** Stops delivering results; in-flight requests are cancelled. */
+    public void release() {
+        for (SingleFlight.Subscription s : loading.values()) s.cancel();
+        loading.clear();
+        generation++;
+    }
+
+    private void load(int page) {
+        if (loading.containsKey(page)) return;
+        int gen = generation;
+        SingleFlight.Subscription[] self = new SingleFlight.Subscription[1];
+        // The page someone is looking at beats one fetched ahead of the scroll
+        RequestScheduler.Priority priority = page <= firstVisiblePage + 1
+                ? RequestScheduler.Priority.VISIBLE : RequestScheduler.Priority.PREFETCH;
+        SingleFlight.Subscription subscription = SingleFlight.enqueue(
+                RetrofitClient.api().getNotesPage(pageSize, pageCursors.get(page)).request(), priority,
+                NotesPager::parsePage, new SingleFlight.Listener<NotesPageResponse>() {
+                    @Override
+                    public void onResult(NotesPageResponse response) {
+                        mainHandler.post(() -> {
+                            // Refreshed, or the page was dropped and is being fetched anew
+                            if (gen != generation || loading.get(page) != self[0]) return;
+                            loading.remove(page);
+                            onPage(page, response);
+                        });
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull IOException e) {
+                        mainHandler.post(() -> {
+                            if (gen != generation || loading.get(page) != self[0]) return;
+                            loading.remove(page);
+                            listener.onLoadFailed(e, count > 0);
+                        });
+                    }
+                });
+        self[0] = subscription;
+        loading.put(page, subscription);
+    }
+
+    private void onPage(int page, NotesPageResponse response) {
+        if (page == 0 && pageCursors.size() == 1) {
+            // First page of a (re)start: whatever was shown belonged to the previous listing
+            pages.clear();
+            pageBounds.clear();
+            count = 0;
+        }
+        List<NotesModel> notes = response.notes;
+        String[] bounds = notes.isEmpty() ? new String[2]
+                : new String[]{notes.get(0).getId(), notes.get(notes.size() - 1).getId()};
+        String[] held = pageBounds.get(page);
+        if (held != null && !Arrays.equals(held, bounds)) dropAfter(page);
+        pageBounds.put(page, bounds);
+        pages.put(page, notes);
+
+        boolean last = response.nextCursor == null || notes.size() < pageSize;
+        if (page == pageCursors.size() - 1) {
+            // Furthest page so far: it decides how long the list is
+            count = page * pageSize + notes.size();
+            endReached = last;
+            if (!last) pageCursors.add(response.nextCursor);
+        } else if (!last) {
+            // A page that was dropped and re-fetched; newer cursor, same position
+            pageCursors.set(page + 1, response.nextCursor);
+        }
+        evict();
+        listener.onItems(new Snapshot(new HashMap<>(pages), pageSize, count));
+
+        // A short page may leave the visible rows within the prefetch margin already
+        if (!endReached && page == pageCursors.size() - 2 && count - 1 <= lastVisible + prefetchDistance) {
+            load(page + 1);
+        }
+    }
+
+    /** Forgets every page after {@code page}, so the list ends there until they are fetched again. */
+    private void dropAfter(int page) {
+        Iterator<Map.Entry<Integer, SingleFlight.Subscription>> it = loading.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, SingleFlight.Subscription> e = it.next();
+            if (e.getKey() <= page) continue;
+            e.getValue().cancel();
+            it.remove();
+        }
+        pages.keySet().removeIf(p -> p > page);
+        pageBounds.keySet().removeIf(p -> p > page);
+        if (pageCursors.size() > page + 1) pageCursors.subList(page + 1, pageCursors.size()).clear();
+    }
+
+    private void evict() {
+        while (pages.size() > maxPages) {
+            int farthest = -1;
+            for (int page : pages.keySet()) {
+                if (farthest < 0 || Math.abs(page - firstVisiblePage) > Math.abs(farthest - firstVisiblePage)) {
+                    farthest = page;
+                }
+            }
+            pages.remove(farthest);
+        }
+    }
+
+    private static NotesPageResponse parsePage(@NonNull Response response) throws IOException {
+        try (Response r = response) {
+            if (!r.isSuccessful() || r.body() == null) {
+                throw new IOException("HTTP " + r.code() + " for " + r.request().url());
+            }
+            NotesPageResponse page = TempusJson.gson().fromJson(r.body().charStream(), NotesPageResponse.class);
+            if (page == null || page.notes == null) throw new IOException("No notes in page response");
+            return page;
+        } catch (JsonParseException e) {
+            throw new IOException("Unparseable page response", e);
+        }
+    }
+
+    /** Read-only view over the pages held when it was taken; null where a page isn't loaded. */
+    private static final class Snapshot extends AbstractList<NotesModel> implements RandomAccess {
+        private final Map<Integer, List<NotesModel>> pages;
+        private final int pageSize;
+        private final int size;
+
+        Snapshot(Map<Integer, List<NotesModel>> pages, int pageSize, int size) {
+            this.pages = pages;
+            this.pageSize = pageSize;
+            this.size = size;
+        }
+
+        @Nullable
+        @Override
+        public NotesModel get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+            List<NotesModel> page = pages.get(index / pageSize);
+            int offset = index % pageSize;
+            return page != null && offset < page.size() ? page.get(offset) : null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.temp.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.example.temp.model.NotesModel;
+import com.example.temp.network.ApiClient;
+import com.example.temp.network.NotesChangesResponse;
+import com.example.temp.network.NotesListResponse;
+import com.example.temp.network.RetrofitClient;
+import com.example.temp.network.RevalidatingFetcher;
+import com.example.temp.network.SingleFlight;
+import com.example.temp.network.TempusJson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.Response;
+
+/**
+ * Offline-first source of the notes catalog (stale-while-revalidate).
+ * Observers get the last stored catalog straight away, then the fresh one once a background
+ * refresh finishes. All callbacks run on the main thread.
+ *
+ * <p>The first load is a conditional GET of the whole {@code /notes/} listing. After that the
+ * stored catalog carries the server's sync cursor and refreshes only ask
+ * {@code /notes/changes} for what was added, edited or deleted since, merging it in locally.
+ */
+public class NotesRepository {
+
+    public interface Listener {
+        /** Called with the current catalog; {@code fresh} is false while it's the stored copy. */
+        void onNotes(@NonNull List<NotesModel> notes, boolean fresh);
+
+        /** The background refresh failed; whatever was delivered before is still valid. */
+        void onRefreshFailed(@NonNull Exception e, boolean hasData);
+    }
+
+    private static final String API_URL = ApiClient.getNotesEndpoint() + "/";
+    private static final String CATALOG_CACHE_KEY = "notes_catalog";
+
+    // Same order as the server's listing: newest upload first, undated notes last
+    private static final Comparator<NotesModel> NEWEST_FIRST = (a, b) ->
+            nullToEmpty(b.getUploadDate()).compareTo(nullToEmpty(a.getUploadDate()));
+
+    private static NotesRepository instance;
+
+    private final RevalidatingFetcher<NotesListResponse> fetcher;
+    // Reads and rewrites of the stored catalog are serialised on this thread
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Only touched on the main thread. Lists handed out are never mutated afterwards.
+    private List<NotesModel> current;
+    private boolean currentIsFresh;
+
+    private NotesRepository(Context context) {
+        fetcher = new RevalidatingFetcher<>(context, API_URL, CATALOG_CACHE_KEY, NotesRepository::parseCatalog);
+    }
+
+    public static synchronized NotesRepository get(@NonNull Context context) {
+        if (instance == null) instance = new NotesRepository(context.getApplicationContext());
+        return instance;
+    }
+
+    /**
+     * Registers a listener and serves it the best catalog available: the in-memory one
+     * immediately, otherwise the stored copy as soon as it's read from disk. Also kicks off a
+     * background refresh. Call on the main thread.
+     */
+    public void observe(@NonNull Listener listener) {
+        listeners.add(listener);
+        if (current != null) {
+            listener.onNotes(current, currentIsFresh);
+        } else {
+            executor.execute(() -> {
+                NotesListResponse stored = fetcher.cachedValue();
+                if (stored != null) mainHandler.post(() -> {
+                    // A refresh may have won the race; never replace fresh data with the stale copy
+                    if (current == null) publish(stored.notes, false);
+                });
+            });
+        }
+        refresh();
+    }
+
+    public void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Brings the catalog up to date in the background. Repeated calls (rotation, several
+     * screens) join the request already in flight rather than starting another one.
+     */
+    public void refresh() {
+        // Reading the stored catalog and validators touches the disk, so keep it off the main thread
+        executor.execute(() -> {
+            NotesListResponse stored = fetcher.cachedValue();
+            if (stored != null && stored.cursor != null && !stored.cursor.isEmpty()) {
+                refreshDelta(stored.cursor);
+            } else {
+                refreshFull();
+            }
+        });
+    }
+
+    private void refreshFull() {
+        SingleFlight.enqueue(fetcher.newRequest(), fetcher::handle,
+                new SingleFlight.Listener<RevalidatingFetcher.Result<NotesListResponse>>() {
+                    @Override
+                    public void onResult(RevalidatingFetcher.Result<NotesListResponse> result) {
+                        mainHandler.post(() -> {
+                            // 304 with the list already on screen: nothing for the UI to do
+                            if (result.notModified && current == result.value.notes) {
+                                currentIsFresh = true;
+                                return;
+                            }
+                            publish(result.value.notes, true);
+                        });
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull IOException e) {
+                        notifyFailure(e);
+                    }
+                });
+    }
+
+    private void refreshDelta(String cursor) {
+        SingleFlight.enqueue(RetrofitClient.api().getNoteChanges(cursor).request(),
+                NotesRepository::parseChanges,
+                new SingleFlight.Listener<NotesChangesResponse>() {
+                    @Override
+                    public void onResult(NotesChangesResponse changes) {
+                        executor.execute(() -> applyChanges(changes));
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull IOException e) {
+                        notifyFailure(e);
+                    }
+                });
+    }
+
+    /** Runs on the executor. Folds a delta into the stored catalog and publishes the result. */
+    private void applyChanges(NotesChangesResponse changes) {
+        NotesListResponse stored = fetcher.cachedValue();
+        if (!changes.full && stored == null) {
+            // The stored catalog went away mid-flight (cleared or corrupt); start over
+            refreshFull();
+            return;
+        }
+
+        List<NotesModel> changed = changes.changed != null ? changes.changed : Collections.emptyList();
+        List<String> deleted = changes.deleted != null ? changes.deleted : Collections.emptyList();
+        if (!changes.full && changed.isEmpty() && deleted.isEmpty()) {
+            List<NotesModel> unchanged = stored.notes;
+            mainHandler.post(() -> {
+                if (current == unchanged) currentIsFresh = true;
+                else publish(unchanged, true);
+            });
+            return;
+        }
+
+        NotesListResponse merged = new NotesListResponse();
+        merged.success = true;
+        merged.notes = changes.full ? changed : merge(stored.notes, changed, deleted);
+        merged.count = merged.notes.size();
+        merged.cursor = changes.cursor;
+        try {
+            fetcher.replace(merged, NotesRepository::writeCatalog);
+        } catch (IOException e) {
+            // Still show the merged list; without a stored copy the next refresh is a full one
+            fetcher.clear();
+        }
+        mainHandler.post(() -> publish(merged.notes, true));
+    }
+
+    private static List<NotesModel> merge(List<NotesModel> notes, List<NotesModel> changed, List<String> deleted) {
+        Map<String, NotesModel> byId = new LinkedHashMap<>();
+        for (NotesModel n : notes) byId.put(n.getId(), n);
+        for (String id : deleted) byId.remove(id);
+        for (NotesModel n : changed) byId.put(n.getId(), n);
+
+        List<NotesModel> result = new ArrayList<>(byId.values());
+        Collections.sort(result, NEWEST_FIRST);
+        return result;
+    }
+
+    private void notifyFailure(IOException e) {
+        mainHandler.post(() -> {
+            for (Listener l : listeners) l.onRefreshFailed(e, current != null);
+        });
+    }
+
+    private void publish(List<NotesModel> notes, boolean fresh) {
+        current = notes;
+        currentIsFresh = fresh;
+        for (Listener l : listeners) l.onNotes(current, fresh);
+    }
+
+    private static NotesListResponse parseCatalog(Reader body) throws IOException {
+        NotesListResponse response = TempusJson.gson().fromJson(body, NotesListResponse.class);
+        if (response == null || response.notes == null) throw new IOException("No notes in catalog response");
+        return response;
+    }
+
+    private static void writeCatalog(NotesListResponse catalog, Writer out) {
+        TempusJson.gson().toJson(catalog, NotesListResponse.class, out);
+    }
+
+    private static NotesChangesResponse parseChanges(@NonNull Response response) throws IOException {
+        try (Response r = response) {
+            if (!r.isSuccessful() || r.body() == null) {
+                throw new IOException("HTTP " + r.code() + " for " + r.request().url());
+            }
+            NotesChangesResponse changes = TempusJson.gson().fromJson(r.body().charStream(), NotesChangesResponse.class);
+            if (changes == null) throw new IOException("Empty changes response");
+            return changes;
+        } catch (JsonParseException e) {
+            throw new IOException("Unparseable changes response", e);
+        }
+    }
+
+    private static String nullToEmpty(String s) {
+        return s != null ? s : "";
+    }
+}
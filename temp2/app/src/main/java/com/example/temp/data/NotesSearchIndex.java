@@ -0,0 +1,289 @@
+package com.example.temp.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.temp.model.NotesModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index over the notes catalog: name, subject, year, uploader, description and tags.
+ *
+ * <p>Every word of those fields goes into a character trie, and every trie node keeps a posting
+ * list of the notes having a word with that prefix (edge n-grams), together with their best
+ * score there. Words of four letters or more also index their inner suffixes, so "unit" still
+ * finds "aiunit" the way the old substring scan did, at a lower score. A query is one trie walk
+ * per query word, reading characters straight off the {@link CharSequence}, and every word has to
+ * match. Notes are ranked by the summed score: which field matched (name highest, description
+ * lowest) times how (whole word, prefix, inside a word); ties keep catalog order.
+ *
+ * <p>{@link #setNotes} only re-indexes notes that were added, edited or removed, so a delta
+ * refresh costs in proportion to the delta. Thread-safe; queries reuse scratch buffers and
+ * allocate nothing but the result list.
+ */
+public class NotesSearchIndex {
+
+    // Field weights
+    private static final int NAME = 6;
+    private static final int SUBJECT = 5;
+    private static final int TAG = 4;
+    private static final int YEAR = 3;
+    private static final int UPLOADER = 2;
+    private static final int DESCRIPTION = 1;
+
+    // How the word matched
+    private static final int WHOLE_WORD = 3;
+    private static final int PREFIX = 2;
+    private static final int INFIX = 1;
+
+    private static final int MIN_INFIX = 3;
+    private static final int MAX_WORD = 32;  // longer runs (hashes, URLs) are only indexed up to here
+    private static final int MAX_QUERY_WORDS = 16;
+
+    private static final class Node {
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        // Posting list: note slot and its best score at this prefix, unordered
+        int[] slots = new int[0];
+        int[] scores = new int[0];
+        int size;
+
+        @Nullable
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i >= 0) return children[i];
+            i = -i - 1;
+            Node node = new Node();
+            labels = insert(labels, i, c);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, i);
+            grown[i] = node;
+            System.arraycopy(children, i, grown, i + 1, children.length - i);
+            children = grown;
+            return node;
+        }
+
+        /** Returns true the first time this slot is posted here. */
+        boolean post(int slot, int score) {
+            // A note is indexed in one go, so an earlier posting of it can only be the last one
+            if (size > 0 && slots[size - 1] == slot) {
+                if (scores[size - 1] < score) scores[size - 1] = score;
+                return false;
+            }
+            if (size == slots.length) {
+                int capacity = Math.max(4, size * 2);
+                slots = Arrays.copyOf(slots, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+            slots[size] = slot;
+            scores[size] = score;
+            size++;
+            return true;
+        }
+
+        void unpost(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    size--;
+                    slots[i] = slots[size];
+                    scores[i] = scores[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final Node root = new Node();
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final List<Integer> freeSlots = new ArrayList<>();
+    private NotesModel[] notes = new NotesModel[0];
+    private Node[][] postedIn = new Node[0][]; // per slot, the nodes to unpost it from
+    private int[] rank = new int[0];            // per slot, position in the current catalog
+    private List<NotesModel> catalog = Collections.emptyList();
+
+    // Query scratch, sized to the slot count, guarded by this
+    private int[] total = new int[0];
+    private int[] matchedWords = new int[0];
+    private long[] hits = new long[0];
+    private final int[] wordStart = new int[MAX_QUERY_WORDS];
+    private final int[] wordEnd = new int[MAX_QUERY_WORDS];
+
+    /**
+     * Brings the index in line with {@code newCatalog}. Notes whose id is new or whose contents
+     * changed are (re)indexed, notes that disappeared are dropped, the rest are left alone.
+     */
+    public synchronized void setNotes(@NonNull List<NotesModel> newCatalog) {
+        Map<String, Integer> seen = new HashMap<>(newCatalog.size() * 2);
+        for (int position = 0; position < newCatalog.size(); position++) {
+            NotesModel note = newCatalog.get(position);
+            if (note.getId() == null || seen.containsKey(note.getId())) continue;
+            Integer slot = slotById.get(note.getId());
+            if (slot == null) {
+                slot = add(note);
+            } else if (!note.equals(notes[slot])) {
+                unindex(slot);
+                notes[slot] = note;
+                index(slot);
+            }
+            seen.put(note.getId(), slot);
+            rank[slot] = position;
+        }
+        for (Map.Entry<String, Integer> e : new ArrayList<>(slotById.entrySet())) {
+            if (!seen.containsKey(e.getKey())) remove(e.getKey(), e.getValue());
+        }
+        catalog = newCatalog;
+    }
+
+    /**
+     * Notes matching every word of {@code query}, best first. A blank query returns the whole
+     * catalog in its own order.
+     */
+    @NonNull
+    public synchronized List<NotesModel> search(@Nullable CharSequence query) {
+        int words = query != null ? splitWords(query) : 0;
+        if (words == 0) return catalog;
+
+        Arrays.fill(total, 0);
+        Arrays.fill(matchedWords, 0);
+        for (int w = 0; w < words; w++) {
+            Node node = root;
+            for (int i = wordStart[w]; node != null && i < wordEnd[w]; i++) {
+                node = node.child(Character.toLowerCase(query.charAt(i)));
+            }
+            if (node == null) return new ArrayList<>();
+            for (int p = 0; p < node.size; p++) {
+                int slot = node.slots[p];
+                // Only notes that matched every earlier word stay in the running
+                if (matchedWords[slot] != w) continue;
+                matchedWords[slot] = w + 1;
+                total[slot] += node.scores[p];
+            }
+        }
+
+        // Sort by score, then catalog position, as packed longs: no boxing, no comparator
+        int count = 0;
+        for (int slot = 0; slot < notes.length; slot++) {
+            if (notes[slot] == null || matchedWords[slot] != words) continue;
+            hits[count++] = ((long) (Integer.MAX_VALUE - total[slot]) << 32) | rank[slot];
+        }
+        Arrays.sort(hits, 0, count);
+        List<NotesModel> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) result.add(catalog.get((int) hits[i]));
+        return result;
+    }
+
+    private int add(NotesModel note) {
+        int slot;
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.remove(freeSlots.size() - 1);
+        } else {
+            slot = notes.length;
+            int capacity = Math.max(16, notes.length * 2);
+            notes = Arrays.copyOf(notes, capacity);
+            postedIn = Arrays.copyOf(postedIn, capacity);
+            rank = Arrays.copyOf(rank, capacity);
+            total = new int[capacity];
+            matchedWords = new int[capacity];
+            hits = new long[capacity];
+            for (int i = capacity - 1; i > slot; i--) freeSlots.add(i);
+        }
+        notes[slot] = note;
+        slotById.put(note.getId(), slot);
+        index(slot);
+        return slot;
+    }
+
+    private void remove(String id, int slot) {
+        unindex(slot);
+        notes[slot] = null;
+        slotById.remove(id);
+        freeSlots.add(slot);
+    }
+
+    private void index(int slot) {
+        NotesModel note = notes[slot];
+        List<Node> touched = new ArrayList<>();
+        indexField(slot, note.getName(), NAME, touched);
+        indexField(slot, note.getSubject(), SUBJECT, touched);
+        for (String tag : note.getTags()) indexField(slot, tag, TAG, touched);
+        indexField(slot, note.getYear(), YEAR, touched);
+        indexField(slot, note.getUploadedBy(), UPLOADER, touched);
+        indexField(slot, note.getDescription(), DESCRIPTION, touched);
+        postedIn[slot] = touched.toArray(new Node[0]);
+    }
+
+    private void unindex(int slot) {
+        Node[] nodes = postedIn[slot];
+        if (nodes == null) return;
+        for (Node node : nodes) node.unpost(slot);
+        postedIn[slot] = null;
+    }
+
+    private void indexField(int slot, @Nullable String text, int weight, List<Node> touched) {
+        if (text == null) return;
+        int i = 0;
+        while (i < text.length()) {
+            int start = i;
+            int kind = kind(text.charAt(i));
+            while (i < text.length() && kind(text.charAt(i)) == kind) i++;
+            if (kind == 0) continue;
+            int end = Math.min(i, start + MAX_WORD);
+            indexRun(slot, text, start, end, weight * WHOLE_WORD, weight * PREFIX, end == i, touched);
+            for (int from = start + 1; end - from >= MIN_INFIX; from++) {
+                indexRun(slot, text, from, end, weight * INFIX, weight * INFIX, false, touched);
+            }
+        }
+    }
+
+    private void indexRun(int slot, String text, int start, int end, int wholeScore, int prefixScore,
+                          boolean wholeWord, List<Node> touched) {
+        Node node = root;
+        for (int i = start; i < end; i++) {
+            node = node.childOrCreate(Character.toLowerCase(text.charAt(i)));
+            int score = wholeWord && i == end - 1 ? wholeScore : prefixScore;
+            if (node.post(slot, score)) touched.add(node);
+        }
+    }
+
+    /** Fills wordStart/wordEnd with the query's words; returns how many. */
+    private int splitWords(CharSequence query) {
+        int words = 0;
+        int i = 0;
+        while (i < query.length() && words < MAX_QUERY_WORDS) {
+            int start = i;
+            int kind = kind(query.charAt(i));
+            while (i < query.length() && kind(query.charAt(i)) == kind) i++;
+            if (kind == 0) continue;
+            wordStart[words] = start;
+            wordEnd[words] = Math.min(i, start + MAX_WORD);
+            words++;
+        }
+        return words;
+    }
+
+    /** Words are runs of letters or of digits: "AI_UNIT_1.pdf" is ai, unit, 1, pdf. */
+    private static int kind(char c) {
+        if (Character.isLetter(c)) return 1;
+        if (Character.isDigit(c)) return 2;
+        return 0;
+    }
+
+    private static char[] insert(char[] a, int i, char c) {
+        char[] grown = new char[a.length + 1];
+        System.arraycopy(a, 0, grown, 0, i);
+        grown[i] = c;
+        System.arraycopy(a, i, grown, i + 1, a.length - i);
+        return grown;
+    }
+}
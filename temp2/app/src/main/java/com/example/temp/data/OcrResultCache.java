@@ -0,0 +1,99 @@
+package com.example.temp.data;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.temp.network.OcrResponse;
+import com.example.temp.network.RequestScheduler;
+import com.example.temp.network.RetrofitClient;
+import com.example.temp.network.TempusJson;
+import com.example.temp.utils.CacheHelper;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import okio.BufferedSource;
+import okio.HashingSink;
+import okio.Okio;
+import retrofit2.Response;
+
+/**
+ * Timetables extracted by OCR, keyed by the SHA-256 of the document they came from and the page
+ * that was read (null for a whole document). A timetable PDF tends to be shared around a whole
+ * class, so before paying for OCR we look the page up here, then on the server
+ * ({@code GET /ocr/result/{sha256}?page=N}), which stores results under the hash of the PDFs
+ * uploaded to it. Results of anything else (photos, rendered pages) only go in the local cache.
+ *
+ * <p>All methods block; call them off the main thread.
+ */
+public class OcrResultCache {
+
+    private static final String TAG = "OcrResultCache";
+    private static final String KEY_PREFIX = "ocr_";
+
+    /** Lowercase hex SHA-256 of the document, read as a stream (never held in memory). */
+    @NonNull
+    public static String sha256(@NonNull ContentResolver resolver, @NonNull Uri uri) throws IOException {
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) throw new FileNotFoundException("Cannot open " + uri);
+            try (BufferedSource source = Okio.buffer(Okio.source(in));
+                 HashingSink sink = HashingSink.sha256(Okio.blackhole())) {
+                source.readAll(sink);
+                return sink.hash().hex();
+            }
+        }
+    }
+
+    /**
+     * The timetable for page {@code page} (1-based; null for the whole document) of this
+     * document, from the local cache or else the server, or null if it has never been extracted.
+     * Server errors count as a miss: the lookup is only a shortcut.
+     */
+    @Nullable
+    public static JsonObject lookup(@NonNull Context context, @NonNull String sha256, @Nullable Integer page) {
+        JsonObject local = lookupLocal(context, sha256, page);
+        if (local != null) return local;
+
+        try {
+            Response<OcrResponse> response = RequestScheduler.execute(
+                    RetrofitClient.api().getOcrResult(sha256, page), RequestScheduler.Priority.USER_BLOCKING);
+            if (!response.isSuccessful() || response.body() == null) return null;
+            JsonObject timetable = response.body().timetable();
+            if (timetable != null) remember(context, sha256, page, timetable);
+            return timetable;
+        } catch (IOException e) {
+            Log.w(TAG, "Stored result lookup failed", e);
+            return null;
+        }
+    }
+
+    /** Like {@link #lookup}, for documents the server never keeps results of. */
+    @Nullable
+    public static JsonObject lookupLocal(@NonNull Context context, @NonNull String sha256, @Nullable Integer page) {
+        String local = CacheHelper.getJson(context, key(sha256, page));
+        if (local == null) return null;
+        try {
+            return TempusJson.gson().fromJson(local, JsonObject.class);
+        } catch (JsonParseException e) {
+            CacheHelper.clear(context, key(sha256, page));
+            return null;
+        }
+    }
+
+    public static void remember(@NonNull Context context, @NonNull String sha256, @Nullable Integer page,
+                                @NonNull JsonObject timetable) {
+        CacheHelper.saveJson(context, key(sha256, page), timetable.toString());
+    }
+
+    private static String key(String sha256, @Nullable Integer page) {
+        return KEY_PREFIX + sha256 + (page != null ? "_p" + page : "_all");
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.temp.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.temp.model.FloorRoom;
+import com.example.temp.network.ApiClient;
+import com.example.temp.network.FloorsResponse;
+import com.example.temp.network.RequestScheduler;
+import com.example.temp.network.RetrofitClient;
+import com.example.temp.network.SingleFlight;
+import com.example.temp.network.TempusJson;
+import com.example.temp.utils.CacheHelper;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Response;
+
+/**
+ * Every room we can show a floor plan for, keyed by type + number ("cr301", "crg1"), with
+ * lookups in O(1).
+ *
+ * <p>Two sources are merged: floor plans bundled as drawables (listed at build time by the
+ * {@code generateRoomIndex} Gradle task in {@link BundledRooms}), and the backend's
+ * {@code /floor/} metadata, which knows each room's real floor and image path. The last
+ * metadata is kept in {@link CacheHelper} so the index is complete offline too.
+ */
+public class RoomIndex {
+
+    private static final String TAG = "RoomIndex";
+    private static final String CACHE_KEY = "floor_rooms";
+
+    /** One room, and where to get its floor plan from. */
+    public static class Room {
+        public final String key;       // "cr301"
+        public final String type;      // "cr"
+        public final String number;    // "301", "g1"
+        public final String typeName;  // "Classroom"
+        /** Null for bundled rooms the server doesn't know about. */
+        @Nullable public final String floor;
+        /** Bundled drawable, or 0. */
+        public final int drawableRes;
+        /** Server image URL, or null. */
+        @Nullable public final String imageUrl;
+
+        Room(String type, String number, @Nullable String floor, int drawableRes, @Nullable String imageUrl) {
+            this.key = key(type, number);
+            this.type = type.toLowerCase();
+            this.number = number.toLowerCase();
+            this.typeName = typeName(this.type);
+            this.floor = floor;
+            this.drawableRes = drawableRes;
+            this.imageUrl = imageUrl;
+        }
+    }
+
+    private static RoomIndex instance;
+
+    private final Context context;
+    // Replaced wholesale on every merge, never mutated, so reads need no lock
+    private volatile Map<String, Room> rooms;
+    private volatile RoomSearchIndex searchIndex;
+    private volatile boolean hasServerData;
+
+    private RoomIndex(Context context) {
+        this.context = context;
+        List<FloorRoom> stored = null;
+        String json = CacheHelper.getJson(context, CACHE_KEY);
+        if (json != null) {
+            try {
+                stored = TempusJson.gson().fromJson(json, new TypeToken<List<FloorRoom>>() {}.getType());
+            } catch (JsonParseException e) {
+                CacheHelper.clear(context, CACHE_KEY);
+            }
+        }
+        merge(stored);
+    }
+
+    public static synchronized RoomIndex get(@NonNull Context context) {
+        if (instance == null) instance = new RoomIndex(context.getApplicationContext());
+        return instance;
+    }
+
+    /** The room with this type ("cr") and number ("301", "g1"), or null. */
+    @Nullable
+    public Room find(@NonNull String type, @NonNull String number) {
+        return rooms.get(key(type, number));
+    }
+
+    /**
+     * Rooms matching a free-text query ("cr 301", "lab 2", "clasroom 10"), best first. Typos
+     * are tolerated. Cheap, but meant for a background thread (e.g. a {@code Filter}).
+     */
+    @NonNull
+    public List<Room> search(@NonNull CharSequence query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    /** Whether the server's metadata has been merged in (now or on an earlier run). */
+    public boolean hasServerData() {
+        return hasServerData;
+    }
+
+    /** Fetches {@code /floor/} in the background and merges it in. */
+    public void refresh() {
+        SingleFlight.enqueue(RetrofitClient.api().getFloors().request(), RequestScheduler.Priority.VISIBLE,
+                RoomIndex::parseFloors, new SingleFlight.Listener<FloorsResponse>() {
+                    @Override
+                    public void onResult(FloorsResponse floors) {
+                        update(floors);
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull IOException e) {
+                        // Keep the stored index; lookups still work from it
+                        Log.w(TAG, "Floor metadata refresh failed", e);
+                    }
+                });
+    }
+
+    /** Merges fresh {@code /floor/} metadata (also fed by {@link FloorPlanSync}) and stores it. */
+    public void update(@NonNull FloorsResponse floors) {
+        List<FloorRoom> all = new ArrayList<>();
+        if (floors.floors != null) {
+            for (List<FloorRoom> list : floors.floors.values()) all.addAll(list);
+        }
+        merge(all);
+        CacheHelper.saveJson(context, CACHE_KEY, TempusJson.gson().toJson(all));
+    }
+
+    static FloorsResponse parseFloors(@NonNull Response response) throws IOException {
+        try (Response r = response) {
+            if (!r.isSuccessful() || r.body() == null) {
+                throw new IOException("HTTP " + r.code() + " for " + r.request().url());
+            }
+            FloorsResponse floors = TempusJson.gson().fromJson(r.body().charStream(), FloorsResponse.class);
+            if (floors == null) throw new IOException("Empty floor metadata");
+            return floors;
+        } catch (JsonParseException e) {
+            throw new IOException("Unparseable floor metadata", e);
+        }
+    }
+
+    private synchronized void merge(@Nullable List<FloorRoom> serverRooms) {
+        Map<String, Room> merged = new HashMap<>();
+        for (int i = 0; i < BundledRooms.NAMES.length; i++) {
+            String name = BundledRooms.NAMES[i];
+            // Drawable names are always a two-letter type followed by the number
+            merged.put(name, new Room(name.substring(0, 2), name.substring(2), null, BundledRooms.DRAWABLES[i], null));
+        }
+        if (serverRooms != null) {
+            String base = ApiClient.getNavigationEndpoint() + "/image/";
+            for (FloorRoom r : serverRooms) {
+                if (r.getRoomType() == null || r.getRoomNumber() == null || r.getImagePath() == null) continue;
+                String key = key(r.getRoomType(), r.getRoomNumber());
+                Room bundled = merged.get(key);
+                merged.put(key, new Room(r.getRoomType(), r.getRoomNumber(), r.getFloor(),
+                        bundled != null ? bundled.drawableRes : 0, base + r.getImagePath()));
+            }
+            hasServerData = true;
+        }
+        rooms = Collections.unmodifiableMap(merged);
+        searchIndex = new RoomSearchIndex(merged.values());
+    }
+
+    private static String key(String type, String number) {
+        return (type + number).toLowerCase();
+    }
+
+    /** Same names as the backend's room_type_full. */
+    static String typeName(String type) {
+        switch (type) {
+            case "cr": return "Classroom";
+            case "tr": return "Tutorial Room";
+            case "cc": return "Computer Lab";
+            case "cl": return "Conference/Lab";
+            default: return "Room";
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.temp.data;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Type-ahead search over rooms. Each room contributes a few terms (its key "cr301", type "cr",
+ * number "301", the words of its type name, and "floor3"), which go into a character trie.
+ * Every trie node lists the rooms having a term with that prefix, so a prefix lookup is one
+ * walk down the trie. Tokens that don't match as a prefix fall back to a bounded
+ * edit-distance walk of the same trie, which is what makes "clasroom" or "cr3o1" still work.
+ *
+ * <p>Immutable once built, so it can be queried from any thread.
+ */
+class RoomSearchIndex {
+
+    private static final int EXACT = 30;
+    private static final int PREFIX = 20;
+    private static final int FUZZY = 10;
+    private static final int PER_EDIT = 4;
+
+    private static final class Node {
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        int[] rooms = new int[0];   // rooms with a term starting here, ascending
+        int[] exact = new int[0];   // rooms with a term ending here, ascending
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? children[i] : null;
+        }
+    }
+
+    private final RoomIndex.Room[] rooms;
+    private final Node root;
+
+    RoomSearchIndex(@NonNull Collection<RoomIndex.Room> all) {
+        rooms = all.toArray(new RoomIndex.Room[0]);
+        // Stable order (and ties broken by key) no matter how the map iterated
+        Arrays.sort(rooms, (a, b) -> a.key.compareTo(b.key));
+
+        Builder builder = new Builder();
+        for (int i = 0; i < rooms.length; i++) {
+            RoomIndex.Room r = rooms[i];
+            builder.add(r.key, i);
+            builder.add(r.type, i);
+            builder.add(r.number, i);
+            for (String word : r.typeName.toLowerCase().split("[^a-z0-9]+")) {
+                if (!word.isEmpty()) builder.add(word, i);
+            }
+            if (r.floor != null) builder.add("floor" + r.floor.toLowerCase(), i);
+        }
+        root = builder.freeze();
+    }
+
+    /** Up to {@code limit} rooms, best match first. Every query token has to match. */
+    @NonNull
+    List<RoomIndex.Room> search(@NonNull CharSequence query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || rooms.length == 0) return new ArrayList<>();
+
+        // Read "cr 301" both as one term ("cr301") and as separate tokens; keep the better score
+        int[] best = score(tokens);
+        if (tokens.size() > 1) {
+            StringBuilder joined = new StringBuilder();
+            for (String t : tokens) joined.append(t);
+            int[] whole = score(Collections.singletonList(joined.toString()));
+            for (int i = 0; i < best.length; i++) best[i] = Math.max(best[i], whole[i]);
+        }
+
+        List<Integer> hits = new ArrayList<>();
+        for (int i = 0; i < best.length; i++) if (best[i] > 0) hits.add(i);
+        hits.sort((a, b) -> {
+            if (best[a] != best[b]) return Integer.compare(best[b], best[a]);
+            int len = Integer.compare(rooms[a].key.length(), rooms[b].key.length());
+            return len != 0 ? len : Integer.compare(a, b);
+        });
+
+        List<RoomIndex.Room> result = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = 0; i < hits.size() && i < limit; i++) result.add(rooms[hits.get(i)]);
+        return result;
+    }
+
+    /** Sum of per-token scores for each room; 0 for rooms missing any token. */
+    private int[] score(List<String> tokens) {
+        int[] total = new int[rooms.length];
+        int[] tokenScore = new int[rooms.length];
+        for (int t = 0; t < tokens.size(); t++) {
+            Arrays.fill(tokenScore, 0);
+            match(tokens.get(t), tokenScore);
+            for (int i = 0; i < total.length; i++) {
+                // A room that missed an earlier token stays out
+                total[i] = tokenScore[i] == 0 || (t > 0 && total[i] == 0) ? 0 : total[i] + tokenScore[i];
+            }
+        }
+        return total;
+    }
+
+    private void match(String token, int[] scores) {
+        Node node = root;
+        for (int i = 0; node != null && i < token.length(); i++) node = node.child(token.charAt(i));
+        if (node != null) {
+            raise(scores, node.rooms, PREFIX);
+            raise(scores, node.exact, EXACT);
+            return;
+        }
+        // No exact prefix: allow one typo in short tokens, two in longer ones
+        if (token.length() < 3) return;
+        int maxEdits = token.length() <= 5 ? 1 : 2;
+        int[] row = new int[token.length() + 1];
+        for (int i = 0; i < row.length; i++) row[i] = i;
+        for (int c = 0; c < root.labels.length; c++) {
+            fuzzy(root.children[c], root.labels[c], token, row, maxEdits, scores);
+        }
+    }
+
+    /**
+     * Levenshtein DP down the trie: {@code prev} is the row for the parent's prefix. When the
+     * whole token is within {@code maxEdits} of this prefix, every room below matches.
+     */
+    private void fuzzy(Node node, char label, String token, int[] prev, int maxEdits, int[] scores) {
+        int[] row = new int[prev.length];
+        row[0] = prev[0] + 1;
+        int rowMin = row[0];
+        for (int i = 1; i < row.length; i++) {
+            int cost = token.charAt(i - 1) == label ? 0 : 1;
+            row[i] = Math.min(Math.min(row[i - 1] + 1, prev[i] + 1), prev[i - 1] + cost);
+            rowMin = Math.min(rowMin, row[i]);
+        }
+        int distance = row[row.length - 1];
+        // Keep descending even on a match: a longer prefix may be closer still
+        if (distance <= maxEdits) raise(scores, node.rooms, FUZZY - PER_EDIT * (distance - 1));
+        if (rowMin > maxEdits) return;
+        for (int c = 0; c < node.labels.length; c++) {
+            fuzzy(node.children[c], node.labels[c], token, row, maxEdits, scores);
+        }
+    }
+
+    private static void raise(int[] scores, int[] ids, int score) {
+        for (int id : ids) if (scores[id] < score) scores[id] = score;
+    }
+
+    /** Lowercase alphanumeric runs, also split where letters meet digits ("cr301" -> cr, 301). */
+    static List<String> tokenize(CharSequence query) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int kind = 0; // 1 letter, 2 digit
+        for (int i = 0; i < query.length(); i++) {
+            char c = Character.toLowerCase(query.charAt(i));
+            int k = c >= 'a' && c <= 'z' ? 1 : c >= '0' && c <= '9' ? 2 : 0;
+            if (k != kind && current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+            if (k != 0) current.append(c);
+            kind = k;
+        }
+        if (current.length() > 0) tokens.add(current.toString());
+        return tokens;
+    }
+
+    /** Mutable trie used while building; frozen into sorted arrays for lookups. */
+    private static final class Builder {
+        final Map<Character, Builder> children = new HashMap<>();
+        final List<Integer> rooms = new ArrayList<>();
+        final List<Integer> exact = new ArrayList<>();
+
+        void add(String term, int room) {
+            Builder node = this;
+            for (int i = 0; i < term.length(); i++) {
+                node = node.children.computeIfAbsent(term.charAt(i), c -> new Builder());
+                addOnce(node.rooms, room);
+            }
+            addOnce(node.exact, room);
+        }
+
+        // Rooms are added in ascending order, so a duplicate can only be the last entry
+        private static void addOnce(List<Integer> list, int room) {
+            if (list.isEmpty() || list.get(list.size() - 1) != room) list.add(room);
+        }
+
+        Node freeze() {
+            Node node = new Node();
+            Character[] keys = children.keySet().toArray(new Character[0]);
+            Arrays.sort(keys);
+            node.labels = new char[keys.length];
+            node.children = new Node[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                node.labels[i] = keys[i];
+                node.children[i] = children.get(keys[i]).freeze();
+            }
+            node.rooms = toArray(rooms);
+            node.exact = toArray(exact);
+            return node;
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            int[] a = new int[list.size()];
+            for (int i = 0; i < a.length; i++) a[i] = list.get(i);
+            return a;
+        }
+    }
+}
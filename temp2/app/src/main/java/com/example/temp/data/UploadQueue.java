@@ -0,0 +1,301 @@
+package com.example.temp.data;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.temp.network.ChunkedUploader;
+import com.example.temp.network.ContentUriRequestBody;
+import com.example.temp.network.TempusJson;
+import com.example.temp.network.UploadResponse;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * App-wide queue of note uploads, independent of any screen. Items are persisted to a JSON file
+ * so the queue survives navigation and process death: on the next start anything that was
+ * queued or mid-upload is picked up again, and {@link ChunkedUploader} resumes each file from
+ * the server's last acknowledged chunk. At most {@link #PARALLEL_UPLOADS} run at once over the
+ * shared client. While there is work, {@link UploadService} keeps the process in the foreground
+ * and brings the queue back if the system kills it anyway.
+ *
+ * <p>Listeners get immutable snapshots of every item on the main thread.
+ */
+public class UploadQueue {
+
+    public static final int PARALLEL_UPLOADS = 3;
+
+    public enum State { QUEUED, UPLOADING, DONE, FAILED }
+
+    /** One queued file. Snapshots handed to listeners are copies and never change. */
+    public static class Item {
+        public String id;
+        public String uri;
+        public String name;
+        public String subject;
+        public String year;
+        public String uploader;
+        public State state;
+        public long sentBytes;
+        public long totalBytes;
+        public long bytesPerSecond;
+        public long etaMillis = -1;
+        public String error;
+
+        Item copy() {
+            Item c = new Item();
+            c.id = id;
+            c.uri = uri;
+            c.name = name;
+            c.subject = subject;
+            c.year = year;
+            c.uploader = uploader;
+            c.state = state;
+            c.sentBytes = sentBytes;
+            c.totalBytes = totalBytes;
+            c.bytesPerSecond = bytesPerSecond;
+            c.etaMillis = etaMillis;
+            c.error = error;
+            return c;
+        }
+    }
+
+    public interface Listener {
+        void onQueueChanged(@NonNull List<Item> items);
+    }
+
+    private static UploadQueue instance;
+
+    private final Context context;
+    private final File queueFile;
+    private final ExecutorService workers = Executors.newFixedThreadPool(PARALLEL_UPLOADS);
+    // Serialises queue file writes so they land in order
+    private final ExecutorService diskWriter = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final List<Item> items = new ArrayList<>(); // guarded by this
+    private int running;                                // guarded by this
+
+    private UploadQueue(Context context) {
+        this.context = context;
+        this.queueFile = new File(context.getFilesDir(), "upload_queue.json");
+        for (Item item : load()) {
+            // The process died mid-upload; the chunked protocol picks up where it stopped
+            if (item.state == State.UPLOADING) item.state = State.QUEUED;
+            items.add(item);
+        }
+        pump();
+    }
+
+    /**
+     * The shared queue. The first call (from MainActivity, or UploadService after the system
+     * restarted it) resumes whatever was left over.
+     */
+    public static synchronized UploadQueue get(@NonNull Context context) {
+        if (instance == null) instance = new UploadQueue(context.getApplicationContext());
+        return instance;
+    }
+
+    /**
+     * Queues each document for upload with the same metadata. URIs should come from
+     * {@code ACTION_OPEN_DOCUMENT} so read access can be kept across restarts.
+     */
+    public void enqueue(@NonNull List<Uri> uris, @NonNull String subject, @Nullable String year,
+                        @Nullable String uploader) {
+        ContentResolver resolver = context.getContentResolver();
+        List<Item> added = new ArrayList<>();
+        for (Uri uri : uris) {
+            try {
+                resolver.takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            } catch (SecurityException e) {
+                // Not a persistable grant (e.g. ACTION_GET_CONTENT); fine until the process dies
+            }
+            Item item = new Item();
+            item.id = UUID.randomUUID().toString();
+            item.uri = uri.toString();
+            item.name = ContentUriRequestBody.displayName(resolver, uri);
+            item.subject = subject;
+            item.year = year;
+            item.uploader = uploader;
+            item.state = State.QUEUED;
+            added.add(item);
+        }
+        synchronized (this) {
+            items.addAll(added);
+        }
+        changed(true);
+        pump();
+    }
+
+    /** Puts a failed item back in the queue. */
+    public void retry(@NonNull String id) {
+        synchronized (this) {
+            Item item = find(id);
+            if (item == null || item.state != State.FAILED) return;
+            item.state = State.QUEUED;
+            item.error = null;
+        }
+        changed(true);
+        pump();
+    }
+
+    /** Forgets finished (done or failed) items. */
+    public void clearFinished() {
+        List<Item> dropped = new ArrayList<>();
+        synchronized (this) {
+            for (Item item : items) {
+                if (item.state == State.DONE || item.state == State.FAILED) dropped.add(item);
+            }
+            items.removeAll(dropped);
+        }
+        for (Item item : dropped) releasePermission(item);
+        changed(true);
+    }
+
+    /** Whether anything is queued or uploading. */
+    public synchronized boolean hasPendingWork() {
+        for (Item item : items) {
+            if (item.state == State.QUEUED || item.state == State.UPLOADING) return true;
+        }
+        return false;
+    }
+
+    /** Registers a listener and immediately hands it the current items. Call on the main thread. */
+    public void observe(@NonNull Listener listener) {
+        listeners.add(listener);
+        listener.onQueueChanged(snapshot());
+    }
+
+    public void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void pump() {
+        List<Item> toStart = new ArrayList<>();
+        synchronized (this) {
+            for (Item item : items) {
+                if (running >= PARALLEL_UPLOADS) break;
+                if (item.state != State.QUEUED) continue;
+                item.state = State.UPLOADING;
+                running++;
+                toStart.add(item);
+            }
+        }
+        if (toStart.isEmpty()) return;
+        UploadService.start(context);
+        changed(true);
+        for (Item item : toStart) workers.execute(() -> run(item));
+    }
+
+    private void run(Item item) {
+        String error = null;
+        try {
+            UploadResponse response = ChunkedUploader.upload(context, Uri.parse(item.uri), item.subject,
+                    item.year, item.uploader, progress -> {
+                        synchronized (this) {
+                            item.sentBytes = progress.sentBytes;
+                            item.totalBytes = progress.totalBytes;
+                            item.bytesPerSecond = progress.bytesPerSecond;
+                            item.etaMillis = progress.etaMillis;
+                        }
+                        // Byte counts aren't persisted; the server remembers the offset anyway
+                        changed(false);
+                    });
+            if (!response.success) error = response.message != null ? response.message : "Upload failed";
+        } catch (SecurityException e) {
+            error = "No longer allowed to read this file";
+        } catch (Exception e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+
+        synchronized (this) {
+            running--;
+            item.state = error == null ? State.DONE : State.FAILED;
+            item.error = error;
+            item.bytesPerSecond = 0;
+            item.etaMillis = -1;
+        }
+        if (error == null) {
+            releasePermission(item);
+            NotesRepository.get(context).refresh();
+        }
+        changed(true);
+        pump();
+    }
+
+    private void releasePermission(Item item) {
+        try {
+            context.getContentResolver().releasePersistableUriPermission(Uri.parse(item.uri),
+                    Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            // Never was persisted
+        }
+    }
+
+    private Item find(String id) {
+        for (Item item : items) {
+            if (item.id.equals(id)) return item;
+        }
+        return null;
+    }
+
+    private synchronized List<Item> snapshot() {
+        List<Item> copy = new ArrayList<>(items.size());
+        for (Item item : items) copy.add(item.copy());
+        return copy;
+    }
+
+    private void changed(boolean persist) {
+        List<Item> snapshot = snapshot();
+        if (persist) diskWriter.execute(() -> save(snapshot));
+        mainHandler.post(() -> {
+            for (Listener l : listeners) l.onQueueChanged(snapshot);
+        });
+    }
+
+    private List<Item> load() {
+        if (!queueFile.exists()) return new ArrayList<>();
+        try (Reader reader = new InputStreamReader(new FileInputStream(queueFile), StandardCharsets.UTF_8)) {
+            List<Item> loaded = TempusJson.gson().fromJson(reader, new TypeToken<List<Item>>() {}.getType());
+            return loaded != null ? loaded : new ArrayList<>();
+        } catch (Exception e) {
+            // Unreadable queue file: start empty rather than crash on every launch
+            return new ArrayList<>();
+        }
+    }
+
+    private void save(List<Item> snapshot) {
+        File tmp = new File(queueFile.getPath() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            TempusJson.gson().toJson(snapshot, out);
+        } catch (IOException | RuntimeException e) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        tmp.renameTo(queueFile);
+    }
+}
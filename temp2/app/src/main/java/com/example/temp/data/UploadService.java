@@ -0,0 +1,131 @@
+package com.example.temp.data;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.IBinder;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import com.example.temp.R;
+import com.example.temp.network.ApiClient;
+
+import java.util.List;
+
+/**
+ * Foreground service (type dataSync) that keeps the process alive while {@link UploadQueue} has
+ * work, so uploads carry on with the app in the background and the screen off. It is sticky: if
+ * the system kills the process anyway, it restarts the service, which reloads the queue from its
+ * file and resumes every upload from the server's last acknowledged chunk. Stops itself once
+ * nothing is queued or uploading.
+ */
+public class UploadService extends Service implements UploadQueue.Listener {
+
+    private static final String TAG = "UploadService";
+    private static final String CHANNEL_ID = "note_uploads";
+    private static final int NOTIFICATION_ID = 1001;
+
+    private NotificationManager notifications;
+    private String lastText;
+    private int lastPermille = -1;
+    private int lastStartId;
+
+    /** Starts the service unless it is running already. Cheap to call on every queue change. */
+    static void start(@NonNull Context context) {
+        try {
+            ContextCompat.startForegroundService(context, new Intent(context, UploadService.class));
+        } catch (IllegalStateException e) {
+            // Android 12+ refuses foreground starts from the background; the queue still runs
+            // for as long as the process lives
+            Log.w(TAG, "Cannot start the upload service", e);
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // After a sticky restart nothing else has set up the shared client yet
+        ApiClient.init(getApplicationContext());
+        notifications = getSystemService(NotificationManager.class);
+        notifications.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "Note uploads",
+                NotificationManager.IMPORTANCE_LOW));
+        ServiceCompat.startForeground(this, NOTIFICATION_ID, notification("Uploading notes…", -1),
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC : 0);
+        UploadQueue.get(getApplicationContext()).observe(this);
+    }
+
+    @Override
+    public int onStartCommand(@Nullable Intent intent, int flags, int startId) {
+        lastStartId = startId;
+        // A sticky restart with nothing left to do (no queue change will come to stop it)
+        if (!UploadQueue.get(getApplicationContext()).hasPendingWork() && stopSelfResult(startId)) {
+            ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+        }
+        return START_STICKY;
+    }
+
+    @Override
+    public void onQueueChanged(@NonNull List<UploadQueue.Item> items) {
+        int pending = 0;
+        long sent = 0, total = 0;
+        for (UploadQueue.Item item : items) {
+            if (item.state != UploadQueue.State.QUEUED && item.state != UploadQueue.State.UPLOADING) continue;
+            pending++;
+            sent += item.sentBytes;
+            total += item.totalBytes;
+        }
+        if (pending == 0) {
+            // Only if nobody has asked for the service since; this snapshot may predate their items
+            if (stopSelfResult(lastStartId)) {
+                ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+            }
+            return;
+        }
+        String text = pending == 1 ? "Uploading 1 note" : "Uploading " + pending + " notes";
+        int permille = total > 0 ? (int) (sent * 1000 / total) : -1;
+        // Progress arrives per chunk; only repost when the notification would look different
+        if (text.equals(lastText) && permille == lastPermille) return;
+        lastText = text;
+        lastPermille = permille;
+        notifications.notify(NOTIFICATION_ID, notification(text, permille));
+    }
+
+    @Override
+    public void onTimeout(int startId, int fgsType) {
+        // Android 15 caps dataSync services at six hours a day; the queue resumes on the next start
+        stopSelf();
+    }
+
+    @Override
+    public void onDestroy() {
+        UploadQueue.get(getApplicationContext()).removeListener(this);
+        super.onDestroy();
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private Notification notification(String text, int permille) {
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_upload)
+                .setContentTitle("Tempus")
+                .setContentText(text)
+                .setProgress(1000, Math.max(permille, 0), permille < 0)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.temp.model;
+
+/** One room from the backend's {@code /floor/} metadata. */
+public class FloorRoom {
+    private final String id;           // e.g. "floor3_cr301"
+    private final String floor;        // "1".."6", "g", "lg"
+    private final String roomNumber;   // "301", "g1", ...
+    private final String roomType;     // cr, tr, cc, cl
+    private final String roomTypeFull; // e.g. "Classroom"
+    private final String imagePath;    // e.g. "3/cr301.png"
+    private final long fileSize;
+    private final String lastUpdated;  // ISO-8601
+
+    public FloorRoom(String id, String floor, String roomNumber, String roomType, String roomTypeFull,
+                     String imagePath, long fileSize, String lastUpdated) {
+        this.id = id;
+        this.floor = floor;
+        this.roomNumber = roomNumber;
+        this.roomType = roomType;
+        this.roomTypeFull = roomTypeFull;
+        this.imagePath = imagePath;
+        this.fileSize = fileSize;
+        this.lastUpdated = lastUpdated;
+    }
+
+    public String getId() { return id; }
+    public String getFloor() { return floor; }
+    public String getRoomNumber() { return roomNumber; }
+    public String getRoomType() { return roomType; }
+    public String getRoomTypeFull() { return roomTypeFull; }
+    public String getImagePath() { return imagePath; }
+    public long getFileSize() { return fileSize; }
+    public String getLastUpdated() { return lastUpdated; }
+}
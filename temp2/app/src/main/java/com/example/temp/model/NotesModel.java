@@ -1,5 +1,9 @@
 package com.example.temp.model;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
 public class NotesModel {
     private final String id;
     private final String name;
@@ -7,14 +11,27 @@ public class NotesModel {
     private final String year;        // can be null/empty
     private final String uploadedBy;
     private final String filePath;    // e.g. "ai/AI_UNIT_1.pdf.pdf"
+    private final String uploadDate;  // ISO-8601, as sent by the backend
+    private final long fileSize;      // in bytes
+    private final String description; // can be null
+    private final List<String> tags;
 
     public NotesModel(String id, String name, String subject, String year, String uploadedBy, String filePath) {
+        this(id, name, subject, year, uploadedBy, filePath, null, 0, null, null);
+    }
+
+    public NotesModel(String id, String name, String subject, String year, String uploadedBy, String filePath,
+                      String uploadDate, long fileSize, String description, List<String> tags) {
         this.id = id;
         this.name = name;
         this.subject = subject;
         this.year = year;
         this.uploadedBy = uploadedBy;
         this.filePath = filePath;
+        this.uploadDate = uploadDate;
+        this.fileSize = fileSize;
+        this.description = description;
+        this.tags = tags != null ? Collections.unmodifiableList(tags) : Collections.emptyList();
     }
 
     public String getId() { return id; }
@@ -23,4 +40,30 @@ public class NotesModel {
     public String getYear() { return year; }
     public String getUploadedBy() { return uploadedBy; }
     public String getFilePath() { return filePath; }
+    public String getUploadDate() { return uploadDate; }
+    public long getFileSize() { return fileSize; }
+    public String getDescription() { return description; }
+    public List<String> getTags() { return tags; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NotesModel)) return false;
+        NotesModel that = (NotesModel) o;
+        return fileSize == that.fileSize
+                && Objects.equals(id, that.id)
+                && Objects.equals(name, that.name)
+                && Objects.equals(subject, that.subject)
+                && Objects.equals(year, that.year)
+                && Objects.equals(uploadedBy, that.uploadedBy)
+                && Objects.equals(filePath, that.filePath)
+                && Objects.equals(uploadDate, that.uploadDate)
+                && Objects.equals(description, that.description)
+                && tags.equals(that.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, subject, year, uploadedBy, filePath, uploadDate, fileSize, description, tags);
+    }
 }
@@ -1,13 +1,142 @@
 package com.example.temp.network;
 
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
+import okhttp3.Response;
 
+/**
+ * Process-wide HTTP engine. Every request in the app (OkHttp or Retrofit) goes through the
+ * client built here so connections, TLS sessions, the dispatcher and the disk cache are shared.
+ */
 public class ApiClient {
-    private static final String BASE_URL = "https://tempus-api.neurotechh.xyz";
+    public static final String BASE_URL = "https://tempus-api.neurotechh.xyz";
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
-    private static final OkHttpClient client = new OkHttpClient();
+
+    private static final long HTTP_CACHE_SIZE = 20L * 1024 * 1024; // 20 MB
+
+    // Per-route timeouts, retries, deadlines and circuit breakers.
+    // First matching prefix wins, so keep the more specific routes on top.
+    private static final RoutePolicy[] ROUTE_POLICIES = {
+            // Stored OCR results are a plain lookup; a miss (404) just means we run OCR instead
+            new RoutePolicy("/ocr/result/", 10, 15, 10)
+                    .retrying(2, 300, 2000)
+                    .withDeadline(20),
+            // OCR is slow and expensive: a few spaced-out retries, then fail fast while it's down
+            new RoutePolicy("/ocr/", 15, 90, 60)
+                    .retrying(3, 2000, 15000)
+                    .retryingPosts()
+                    .withDeadline(180)
+                    .withCircuitBreaker(3, 60),
+            // Calls on an open upload session are idempotent (chunks carry their offset, complete
+            // is repeatable), so they retry freely. Must stay above the prefixes below.
+            new RoutePolicy("/notes/uploads/", 10, 30, 60)
+                    .retrying(4, 500, 8000)
+                    .retryingPosts()
+                    .withDeadline(120),
+            // Opening a session creates a new one each time; a blind retry would leave orphans
+            new RoutePolicy("/notes/uploads", 10, 30, 10)
+                    .withDeadline(60),
+            // Uploads create a new note each time, so never retry them blindly
+            new RoutePolicy("/notes/upload", 15, 60, 120)
+                    .withDeadline(600),
+            new RoutePolicy("/crowd/", 15, 120, 120)
+                    .withDeadline(300)
+                    .withCircuitBreaker(3, 60),
+            new RoutePolicy("/floor/image/", 10, 20, 10)
+                    .retrying(3, 300, 2000)
+                    .withDeadline(30),
+            // Note files can be tens of MB; give the transfer time, but not forever
+            new RoutePolicy("/notes/download/", 10, 60, 10)
+                    .retrying(3, 500, 4000)
+                    .withDeadline(300),
+            // The first request for a page renders it on the server
+            new RoutePolicy("/notes/preview/", 10, 30, 10)
+                    .retrying(2, 300, 2000)
+                    .withDeadline(30),
+            new RoutePolicy("/notes/", 10, 15, 10)
+                    .retrying(3, 300, 2000)
+                    .withDeadline(30),
+            new RoutePolicy("/floor/", 10, 15, 10)
+                    .retrying(3, 300, 2000)
+                    .withDeadline(30),
+    };
+
+    private static volatile OkHttpClient client;
+
+    /**
+     * Builds the shared client with an on-disk cache. Call once from the launcher activity;
+     * later calls are ignored.
+     */
+    public static void init(@NonNull Context context) {
+        if (client != null) return;
+        synchronized (ApiClient.class) {
+            if (client == null) {
+                File cacheDir = new File(context.getApplicationContext().getCacheDir(), "http");
+                client = buildClient(new Cache(cacheDir, HTTP_CACHE_SIZE));
+            }
+        }
+    }
+
+    private static OkHttpClient buildClient(Cache cache) {
+        // Everything async goes to one host through RequestScheduler; room for all it admits,
+        // so priorities aren't lost in OkHttp's own queue
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(32);
+        dispatcher.setMaxRequestsPerHost(RequestScheduler.maxInFlight());
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+                // HTTP/2 lets all calls to the API host multiplex over one TLS connection
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(20, TimeUnit.SECONDS)
+                .writeTimeout(20, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .eventListenerFactory(NetworkMetrics.listenerFactory())
+                .addInterceptor(new RoutePolicyInterceptor(ROUTE_POLICIES));
+        if (cache != null) builder.cache(cache);
+        return builder.build();
+    }
+
+    /**
+     * Opens (DNS + TCP + TLS) a pooled connection to the API host in the background so the
+     * first real request doesn't pay for the handshake.
+     */
+    public static void warmUp() {
+        // The root route is a tiny status JSON, cheap enough to use as a ping
+        Request request = new Request.Builder()
+                .url(BASE_URL + "/")
+                .build();
+        // Lowest class: if the user asks for something first, that call opens the connection anyway
+        RequestScheduler.enqueue(getClient().newCall(request), RequestScheduler.Priority.PREFETCH, new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                // Best effort only; the real request will connect on its own.
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                response.close();
+            }
+        });
+    }
 
     // Crowd Management API endpoints
     public static String getCrowdEndpoint() {
@@ -39,6 +168,14 @@ public class ApiClient {
     }
 
     public static OkHttpClient getClient() {
-        return client;
+        OkHttpClient c = client;
+        if (c == null) {
+            synchronized (ApiClient.class) {
+                // No context yet: fall back to a cache-less client so callers never see null
+                if (client == null) client = buildClient(null);
+                c = client;
+            }
+        }
+        return c;
     }
 }
@@ -0,0 +1,210 @@
+package com.example.temp.network;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.temp.utils.CacheHelper;
+
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.ByteString;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Uploads a note through the resumable {@code /notes/uploads} protocol: the file goes up in
+ * fixed-size chunks, each with its offset and SHA-256, and the session id plus the last
+ * acknowledged offset are kept in {@link CacheHelper}. Uploading the same document again (after
+ * a dropped connection, or after the process was killed) asks the server how much it already
+ * has and continues from there.
+ *
+ * <p>Progress (bytes on the wire, throughput, ETA) is reported through {@link UploadProgress},
+ * and every attempt ends up in {@link NetworkMetrics#recordUpload}. All methods block; call them
+ * off the main thread. File bytes go through {@link RequestScheduler} as PREFETCH, session
+ * calls as VISIBLE, so uploads give way to whatever the user is waiting for.
+ */
+public class ChunkedUploader {
+
+    public static final int CHUNK_SIZE = 1024 * 1024;
+
+    private static final String STATE_PREFIX = "chunked_upload_";
+    private static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+    private static final MediaType TEXT = MediaType.get("text/plain");
+
+    /** What gets persisted between attempts. */
+    private static class State {
+        String uploadId;
+        long size;
+        long received;
+    }
+
+    public static UploadResponse upload(@NonNull Context context, @NonNull Uri uri, @NonNull String subject,
+                                        @Nullable String year, @Nullable String uploader,
+                                        @Nullable UploadProgress.Listener listener) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+        String fileName = ContentUriRequestBody.displayName(resolver, uri);
+        MediaType mediaType = ContentUriRequestBody.mediaType(resolver, uri);
+        long size = new ContentUriRequestBody(resolver, uri, mediaType).contentLength();
+        UploadProgress progress = new UploadProgress(size, listener != null ? listener : s -> { });
+        int[] retries = {0};
+        boolean resumed = false;
+        boolean failed = true;
+        try {
+            UploadResponse done;
+            if (size <= 0) {
+                // Pipe-backed provider: no length, no offsets to resume from
+                done = uploadWhole(resolver, uri, fileName, mediaType, subject, year, uploader, progress, retries);
+            } else {
+                TempusApi api = RetrofitClient.api();
+                String stateKey = STATE_PREFIX + ByteString.encodeUtf8(uri + "|" + size + "|" + subject).sha1().hex();
+
+                UploadSessionResponse session = resume(context, api, stateKey, size);
+                resumed = session != null && session.received > 0;
+                if (session == null) {
+                    session = body(control(api.startUpload(size, fileName, subject,
+                            mediaType.type() + "/" + mediaType.subtype(), CHUNK_SIZE, year, uploader)));
+                    saveState(context, stateKey, session.uploadId, size, session.received);
+                }
+                progress.update(session.received);
+
+                sendChunks(context, resolver, uri, api, session, stateKey, size, progress, retries);
+
+                done = body(control(api.completeUpload(session.uploadId)));
+                CacheHelper.clear(context, stateKey);
+            }
+            failed = !done.success;
+            return done;
+        } finally {
+            NetworkMetrics.recordUpload(progress.sentThisAttempt(), progress.elapsedMillis(), retries[0],
+                    resumed, failed);
+        }
+    }
+
+    private static void sendChunks(Context context, ContentResolver resolver, Uri uri, TempusApi api,
+                                   UploadSessionResponse session, String stateKey, long size,
+                                   UploadProgress progress, int[] retries) throws IOException {
+        long offset = session.received;
+        ParcelFileDescriptor pfd = resolver.openFileDescriptor(uri, "r");
+        if (pfd == null) throw new FileNotFoundException("Cannot open " + uri);
+        try (FileInputStream in = new ParcelFileDescriptor.AutoCloseInputStream(pfd)) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(session.chunkSize);
+            while (offset < size) {
+                int length = (int) Math.min(session.chunkSize, size - offset);
+                readFully(channel, offset, buffer, length);
+                ByteString chunk = ByteString.of(buffer.array(), 0, length);
+
+                ProgressRequestBody chunkBody = new ProgressRequestBody(
+                        RequestBody.create(chunk, OCTET_STREAM), progress, offset);
+                Response<UploadSessionResponse> response = bulk(api.uploadChunk(session.uploadId, offset,
+                        chunk.sha256().hex(), chunkBody));
+                retries[0] += Math.max(0, chunkBody.attempts() - 1);
+                // 409: we're out of step with the server (e.g. an ack got lost); it tells us where to go on
+                UploadSessionResponse ack = response.code() == 409 ? errorBody(response) : body(response);
+                if (ack.received == offset && response.code() != 409) {
+                    throw new IOException("Chunk at " + offset + " was not stored");
+                }
+                offset = ack.received;
+                saveState(context, stateKey, session.uploadId, size, offset);
+                progress.update(offset);
+            }
+        }
+    }
+
+    /** Server-side state of a previous attempt at this upload, or null to start a new session. */
+    @Nullable
+    private static UploadSessionResponse resume(Context context, TempusApi api, String stateKey, long size)
+            throws IOException {
+        String json = CacheHelper.getJson(context, stateKey);
+        if (json == null) return null;
+        State state = TempusJson.gson().fromJson(json, State.class);
+        if (state == null || state.uploadId == null || state.size != size) {
+            CacheHelper.clear(context, stateKey);
+            return null;
+        }
+
+        Response<UploadSessionResponse> response = control(api.getUploadStatus(state.uploadId));
+        if (response.code() == 404) {
+            // Expired or already purged on the server
+            CacheHelper.clear(context, stateKey);
+            return null;
+        }
+        return body(response);
+    }
+
+    private static void saveState(Context context, String key, String uploadId, long size, long received) {
+        State state = new State();
+        state.uploadId = uploadId;
+        state.size = size;
+        state.received = received;
+        CacheHelper.saveJson(context, key, TempusJson.gson().toJson(state));
+    }
+
+    private static UploadResponse uploadWhole(ContentResolver resolver, Uri uri, String fileName, MediaType mediaType,
+                                              String subject, @Nullable String year, @Nullable String uploader,
+                                              UploadProgress progress, int[] retries) throws IOException {
+        ProgressRequestBody fileBody = new ProgressRequestBody(
+                new ContentUriRequestBody(resolver, uri, mediaType), progress, 0);
+        MultipartBody.Part file = MultipartBody.Part.createFormData("file", fileName, fileBody);
+        try {
+            return body(bulk(RetrofitClient.api().uploadNote(file,
+                    RequestBody.create(subject, TEXT),
+                    RequestBody.create(year != null ? year : "", TEXT),
+                    RequestBody.create(uploader != null ? uploader : "", TEXT))));
+        } finally {
+            retries[0] += Math.max(0, fileBody.attempts() - 1);
+        }
+    }
+
+    private static void readFully(FileChannel channel, long position, ByteBuffer buffer, int length)
+            throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new EOFException("File shrank during upload");
+        }
+    }
+
+    // Session calls: small, and the progress bar waits on them
+    private static <T> Response<T> control(Call<T> call) throws IOException {
+        return RequestScheduler.execute(call, RequestScheduler.Priority.VISIBLE);
+    }
+
+    // File bytes, the bulk of the traffic: only go out while nothing more urgent is waiting
+    private static <T> Response<T> bulk(Call<T> call) throws IOException {
+        return RequestScheduler.execute(call, RequestScheduler.Priority.PREFETCH);
+    }
+
+    private static <T> T body(Response<T> response) throws IOException {
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IOException("HTTP " + response.code() + " for " + response.raw().request().url().encodedPath());
+        }
+        return response.body();
+    }
+
+    private static UploadSessionResponse errorBody(Response<?> response) throws IOException {
+        try (ResponseBody error = response.errorBody()) {
+            if (error == null) throw new IOException("HTTP " + response.code());
+            Reader reader = error.charStream();
+            UploadSessionResponse status = TempusJson.gson().fromJson(reader, UploadSessionResponse.class);
+            if (status == null) throw new IOException("HTTP " + response.code());
+            return status;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.temp.network;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row the
+ * circuit opens and calls fail fast for {@code openMillis}; then a single trial call is let
+ * through (half-open) and its outcome closes or re-opens the circuit. A trial that ends without
+ * an outcome ({@link #recordAbandoned}) or never reports one within {@code openMillis} makes way
+ * for another, so the circuit can't stay half-open for good.
+ */
+public class CircuitBreaker {
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long trialStartedAt;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /** Whether a call may go out now. In half-open state only the first caller gets through. */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt >= openMillis) {
+                    state = State.HALF_OPEN;
+                    trialStartedAt = System.currentTimeMillis();
+                    return true;
+                }
+                return false;
+            default: // HALF_OPEN: a trial call is already running, unless it got lost
+                if (System.currentTimeMillis() - trialStartedAt >= openMillis) {
+                    trialStartedAt = System.currentTimeMillis();
+                    return true;
+                }
+                return false;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * A call ended without telling anything about the server (e.g. it was cancelled). If it was
+     * the trial, the next caller gets to be the trial instead.
+     */
+    public synchronized void recordAbandoned() {
+        if (state == State.HALF_OPEN) trialStartedAt = 0;
+    }
+
+    /** Milliseconds until the circuit will allow a trial call, or 0 if it isn't open. */
+    public synchronized long retryAfterMillis() {
+        if (state != State.OPEN) return 0;
+        return Math.max(0, openMillis - (System.currentTimeMillis() - openedAt));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.temp.network;
+
+import java.io.IOException;
+
+/** Thrown instead of calling an endpoint whose {@link CircuitBreaker} is open. */
+public class CircuitOpenException extends IOException {
+
+    private final long retryAfterMillis;
+
+    public CircuitOpenException(String endpoint, long retryAfterMillis) {
+        super("Service temporarily unavailable: " + endpoint);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.temp.network;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.OpenableColumns;
+import android.webkit.MimeTypeMap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Request body that streams a picked document straight from the {@link ContentResolver},
+ * without copying it to a temp file first.
+ *
+ * <p>Bytes are read from the document's file descriptor directly into Okio segments (no
+ * intermediate buffer) and the length comes from the descriptor, so uploads go out with a
+ * proper Content-Length. The document is re-opened on every {@link #writeTo}, which keeps the
+ * body retryable. Providers backed by a pipe have no length and fall back to chunked encoding.
+ */
+public class ContentUriRequestBody extends RequestBody {
+
+    private final ContentResolver resolver;
+    private final Uri uri;
+    private final MediaType contentType;
+    private long contentLength = -2; // -2 = not looked up yet
+
+    public ContentUriRequestBody(@NonNull ContentResolver resolver, @NonNull Uri uri,
+                                 @Nullable MediaType contentType) {
+        this.resolver = resolver;
+        this.uri = uri;
+        this.contentType = contentType;
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public synchronized long contentLength() throws IOException {
+        if (contentLength == -2) {
+            try (ParcelFileDescriptor pfd = resolver.openFileDescriptor(uri, "r")) {
+                // statSize is -1 for pipes and sockets: length unknown
+                contentLength = pfd != null ? pfd.getStatSize() : -1;
+            }
+        }
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        long length = contentLength();
+        ParcelFileDescriptor pfd = resolver.openFileDescriptor(uri, "r");
+        if (pfd == null) throw new FileNotFoundException("Cannot open " + uri);
+
+        try (FileInputStream in = new ParcelFileDescriptor.AutoCloseInputStream(pfd)) {
+            if (length >= 0) {
+                // Some providers hand out dups of one descriptor; a previous attempt may have moved it
+                in.getChannel().position(0);
+            }
+            try (Source source = Okio.source(in)) {
+                if (length >= 0) {
+                    // Exactly the announced length, or fail (EOFException) rather than send a short body
+                    sink.write(source, length);
+                } else {
+                    sink.writeAll(source);
+                }
+            }
+        }
+    }
+
+    /** Content type from the provider, else from the file extension, else octet-stream. */
+    @NonNull
+    public static MediaType mediaType(@NonNull ContentResolver resolver, @NonNull Uri uri) {
+        String type = resolver.getType(uri);
+        if (type == null) {
+            String name = displayName(resolver, uri);
+            int dot = name.lastIndexOf('.');
+            if (dot >= 0) {
+                type = MimeTypeMap.getSingleton().getMimeTypeFromExtension(name.substring(dot + 1).toLowerCase());
+            }
+        }
+        MediaType parsed = type != null ? MediaType.parse(type) : null;
+        return parsed != null ? parsed : MediaType.get("application/octet-stream");
+    }
+
+    /** Display name of a document, falling back to the last path segment. */
+    @NonNull
+    public static String displayName(@NonNull ContentResolver resolver, @NonNull Uri uri) {
+        String result = null;
+        try (Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                int idx = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+                if (idx >= 0) result = cursor.getString(idx);
+            }
+        }
+        if (result == null) result = uri.getLastPathSegment();
+        return result != null ? result : "upload";
+    }
+}
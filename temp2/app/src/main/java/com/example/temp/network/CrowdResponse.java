@@ -0,0 +1,14 @@
+package com.example.temp.network;
+
+/**
+ * {@code POST /crowd/count}, reduced to the summary the app shows. The per-frame data in the
+ * response is skipped while parsing (see {@link TempusJson}).
+ */
+public class CrowdResponse {
+    public boolean success;
+    public String overallAssessment; // GREEN / YELLOW / RED
+    public double averageCount;
+    public int maxCount;
+    public int minCount;
+    public double peakCrowdTime;     // seconds into the video
+}
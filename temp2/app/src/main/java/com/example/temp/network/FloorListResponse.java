@@ -0,0 +1,17 @@
+package com.example.temp.network;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+
+/** {@code GET /floor/list} */
+public class FloorListResponse {
+    public boolean success;
+    public List<FloorCount> floors;
+
+    public static class FloorCount {
+        public String floor;
+        @SerializedName("room_count")
+        public int roomCount;
+    }
+}
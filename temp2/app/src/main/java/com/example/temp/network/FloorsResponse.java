@@ -0,0 +1,15 @@
+package com.example.temp.network;
+
+import com.example.temp.model.FloorRoom;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+import java.util.Map;
+
+/** {@code GET /floor/}: every room, grouped by floor. */
+public class FloorsResponse {
+    public boolean success;
+    public Map<String, List<FloorRoom>> floors;
+    @SerializedName("total_rooms")
+    public int totalRooms;
+}
@@ -0,0 +1,72 @@
+package com.example.temp.network;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-bucket latency histogram (milliseconds) with roughly logarithmic bucket bounds.
+ * Cheap enough to update on every call; percentiles are estimated from bucket upper bounds.
+ */
+public class LatencyHistogram {
+
+    // Upper bounds (inclusive) in ms; the last bucket catches everything slower
+    private static final long[] BOUNDS = {
+            5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, Long.MAX_VALUE
+    };
+
+    private final long[] counts = new long[BOUNDS.length];
+    private long count;
+    private long sumMs;
+    private long maxMs;
+
+    public synchronized void record(long ms) {
+        if (ms < 0) return;
+        int i = 0;
+        while (ms > BOUNDS[i]) i++;
+        counts[i]++;
+        count++;
+        sumMs += ms;
+        if (ms > maxMs) maxMs = ms;
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    public synchronized long meanMs() {
+        return count == 0 ? 0 : sumMs / count;
+    }
+
+    public synchronized long maxMs() {
+        return maxMs;
+    }
+
+    /** Upper bound of the bucket holding the given percentile (0-100), capped at the max seen. */
+    public synchronized long percentileMs(double p) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(count * p / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(BOUNDS[i], maxMs);
+        }
+        return maxMs;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sumMs = 0;
+        maxMs = 0;
+    }
+
+    /** One-line summary, e.g. {@code n=12 mean=84 p50=100 p90=250 p99=500 max=312}. */
+    public synchronized String summary() {
+        if (count == 0) return "n=0";
+        return "n=" + count
+                + " mean=" + meanMs()
+                + " p50=" + percentileMs(50)
+                + " p90=" + percentileMs(90)
+                + " p99=" + percentileMs(99)
+                + " max=" + maxMs;
+    }
+}
@@ -0,0 +1,328 @@
+package com.example.temp.network;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * In-process network metrics, grouped per endpoint. Fed by an OkHttp {@link EventListener}
+ * installed on the shared client: DNS, connect, TLS, time-to-first-byte and total call time go
+ * into {@link LatencyHistogram}s, together with request/response byte counts.
+ */
+public class NetworkMetrics {
+
+    // Routes whose trailing path segments are ids/filenames; they're folded into one endpoint
+    private static final String[] TEMPLATED_PREFIXES = {
+            "/floor/image/", "/floor/download/", "/floor/find/", "/floor/room/",
+            "/notes/view/", "/notes/download/", "/notes/preview/", "/notes/uploads/", "/ocr/result/",
+    };
+
+    private static final int RECENT_UPLOADS = 10;
+
+    /** Aggregated numbers for one endpoint. */
+    public static class EndpointStats {
+        public final LatencyHistogram dns = new LatencyHistogram();
+        public final LatencyHistogram connect = new LatencyHistogram();
+        public final LatencyHistogram tls = new LatencyHistogram();
+        public final LatencyHistogram ttfb = new LatencyHistogram();
+        public final LatencyHistogram total = new LatencyHistogram();
+
+        private long calls;
+        private long failures;
+        private long cacheHits;
+        private long bytesSent;
+        private long bytesReceived;
+
+        synchronized void addCall(boolean failed, boolean cacheHit, long sent, long received) {
+            calls++;
+            if (failed) failures++;
+            if (cacheHit) cacheHits++;
+            bytesSent += sent;
+            bytesReceived += received;
+        }
+
+        public synchronized long calls() { return calls; }
+        public synchronized long failures() { return failures; }
+        public synchronized long cacheHits() { return cacheHits; }
+        public synchronized long bytesSent() { return bytesSent; }
+        public synchronized long bytesReceived() { return bytesReceived; }
+    }
+
+    /** Whole-upload summaries (one per file attempt, across all of its chunks). */
+    public static class UploadStats {
+        public final LatencyHistogram duration = new LatencyHistogram();
+
+        private long uploads;
+        private long failures;
+        private long resumed;
+        private long retries;
+        private long bytes;
+        private long millis;
+        private final Deque<String> recent = new ArrayDeque<>();
+
+        synchronized void add(long bytesSent, long durationMs, int retryCount, boolean wasResumed, boolean failed) {
+            uploads++;
+            if (failed) failures++;
+            if (wasResumed) resumed++;
+            retries += retryCount;
+            bytes += bytesSent;
+            millis += durationMs;
+            duration.record(durationMs);
+
+            recent.addFirst(new SimpleDateFormat("HH:mm:ss", Locale.US).format(new Date())
+                    + " " + formatBytes(bytesSent) + " in " + durationMs + "ms"
+                    + " (" + formatRate(bytesSent, durationMs) + ")"
+                    + " retries=" + retryCount
+                    + (wasResumed ? " resumed" : "")
+                    + (failed ? " FAILED" : ""));
+            while (recent.size() > RECENT_UPLOADS) recent.removeLast();
+        }
+
+        public synchronized long uploads() { return uploads; }
+        public synchronized long failures() { return failures; }
+        public synchronized long bytes() { return bytes; }
+
+        /** Mean throughput over all recorded uploads, bytes/second. */
+        public synchronized long averageBytesPerSecond() {
+            return millis > 0 ? bytes * 1000 / millis : 0;
+        }
+
+        synchronized void appendTo(StringBuilder sb) {
+            sb.append("\nUploads\n")
+                    .append("  count=").append(uploads)
+                    .append(" failed=").append(failures)
+                    .append(" resumed=").append(resumed)
+                    .append(" retries=").append(retries)
+                    .append(" sent=").append(formatBytes(bytes))
+                    .append(" avg=").append(formatRate(bytes, millis)).append('\n')
+                    .append("  duration ").append(duration.summary()).append('\n');
+            for (String line : recent) sb.append("  ").append(line).append('\n');
+        }
+
+        synchronized void reset() {
+            uploads = failures = resumed = retries = bytes = millis = 0;
+            duration.reset();
+            recent.clear();
+        }
+    }
+
+    private static final Map<String, EndpointStats> endpoints = new TreeMap<>();
+    private static final UploadStats uploads = new UploadStats();
+
+    public static EventListener.Factory listenerFactory() {
+        return call -> new CallMetrics(endpointOf(call.request().url()));
+    }
+
+    /** Normalises a URL to its endpoint, e.g. {@code /floor/image/3/cr301.png -> /floor/image/*}. */
+    public static String endpointOf(@NonNull HttpUrl url) {
+        String path = url.encodedPath();
+        for (String prefix : TEMPLATED_PREFIXES) {
+            if (path.startsWith(prefix)) return prefix + "*";
+        }
+        return path;
+    }
+
+    public static EndpointStats stats(@NonNull String endpoint) {
+        synchronized (endpoints) {
+            EndpointStats s = endpoints.get(endpoint);
+            if (s == null) {
+                s = new EndpointStats();
+                endpoints.put(endpoint, s);
+            }
+            return s;
+        }
+    }
+
+    /** Records one finished (or failed) file upload; bytes are what this attempt sent. */
+    public static void recordUpload(long bytesSent, long durationMs, int retries, boolean resumed, boolean failed) {
+        uploads.add(bytesSent, durationMs, retries, resumed, failed);
+    }
+
+    public static UploadStats uploads() {
+        return uploads;
+    }
+
+    public static void reset() {
+        synchronized (endpoints) {
+            endpoints.clear();
+        }
+        uploads.reset();
+    }
+
+    /** Human-readable report of every endpoint seen since start (or the last reset). */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Network metrics @ ")
+                .append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date()))
+                .append("\n(latencies in ms)\n");
+        Map<String, EndpointStats> snapshot;
+        synchronized (endpoints) {
+            snapshot = new TreeMap<>(endpoints);
+        }
+        if (snapshot.isEmpty()) sb.append("\nNo requests recorded yet.\n");
+        for (Map.Entry<String, EndpointStats> e : snapshot.entrySet()) {
+            EndpointStats s = e.getValue();
+            sb.append('\n').append(e.getKey()).append('\n')
+                    .append("  calls=").append(s.calls())
+                    .append(" failed=").append(s.failures())
+                    .append(" cached=").append(s.cacheHits())
+                    .append(" sent=").append(formatBytes(s.bytesSent()))
+                    .append(" recv=").append(formatBytes(s.bytesReceived())).append('\n')
+                    .append("  total   ").append(s.total.summary()).append('\n')
+                    .append("  ttfb    ").append(s.ttfb.summary()).append('\n')
+                    .append("  dns     ").append(s.dns.summary()).append('\n')
+                    .append("  connect ").append(s.connect.summary()).append('\n')
+                    .append("  tls     ").append(s.tls.summary()).append('\n');
+        }
+        if (uploads.uploads() > 0) uploads.appendTo(sb);
+        return sb.toString();
+    }
+
+    /** Writes {@link #report()} to {@code file}, creating parent directories as needed. */
+    public static File dumpTo(@NonNull File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        try (Writer w = new FileWriter(file)) {
+            w.write(report());
+        }
+        return file;
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + "B";
+        if (bytes < 1024 * 1024) return String.format(Locale.US, "%.1fKB", bytes / 1024.0);
+        return String.format(Locale.US, "%.1fMB", bytes / (1024.0 * 1024.0));
+    }
+
+    /** e.g. {@code 1.4MB/s}; "-" when nothing was timed. */
+    static String formatRate(long bytes, long millis) {
+        if (millis <= 0) return "-";
+        return formatBytes(bytes * 1000 / millis) + "/s";
+    }
+
+    /** Per-call listener; OkHttp creates one for every call. */
+    private static class CallMetrics extends EventListener {
+        private final String endpoint;
+
+        private long callStart;
+        private long dnsStart = -1;
+        private long connectStart = -1;
+        private long secureStart = -1;
+        private long ttfbMs = -1;
+        private long dnsMs = -1;
+        private long connectMs = -1;
+        private long tlsMs = -1;
+        private long bytesSent;
+        private long bytesReceived;
+        private boolean cacheHit;
+
+        CallMetrics(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private static long now() {
+            return System.nanoTime() / 1_000_000;
+        }
+
+        @Override
+        public void callStart(@NonNull Call call) {
+            callStart = now();
+        }
+
+        @Override
+        public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+            dnsStart = now();
+        }
+
+        @Override
+        public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> list) {
+            if (dnsStart >= 0) dnsMs = now() - dnsStart;
+        }
+
+        @Override
+        public void connectStart(@NonNull Call call, @NonNull InetSocketAddress address, @NonNull Proxy proxy) {
+            connectStart = now();
+        }
+
+        @Override
+        public void secureConnectStart(@NonNull Call call) {
+            secureStart = now();
+        }
+
+        @Override
+        public void secureConnectEnd(@NonNull Call call, @Nullable Handshake handshake) {
+            if (secureStart >= 0) tlsMs = now() - secureStart;
+        }
+
+        @Override
+        public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress address,
+                               @NonNull Proxy proxy, @Nullable Protocol protocol) {
+            if (connectStart >= 0) connectMs = now() - connectStart;
+        }
+
+        @Override
+        public void requestBodyEnd(@NonNull Call call, long byteCount) {
+            bytesSent += byteCount;
+        }
+
+        @Override
+        public void responseHeadersStart(@NonNull Call call) {
+            if (ttfbMs < 0) ttfbMs = now() - callStart;
+        }
+
+        @Override
+        public void responseBodyEnd(@NonNull Call call, long byteCount) {
+            bytesReceived += byteCount;
+        }
+
+        @Override
+        public void cacheHit(@NonNull Call call, @NonNull Response cachedResponse) {
+            cacheHit = true;
+        }
+
+        @Override
+        public void callEnd(@NonNull Call call) {
+            record(false);
+        }
+
+        @Override
+        public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+            record(true);
+        }
+
+        private void record(boolean failed) {
+            EndpointStats s = stats(endpoint);
+            s.total.record(now() - callStart);
+            // Connection-phase timings only exist when a new connection was opened
+            if (dnsMs >= 0) s.dns.record(dnsMs);
+            if (connectMs >= 0) s.connect.record(connectMs);
+            if (tlsMs >= 0) s.tls.record(tlsMs);
+            if (ttfbMs >= 0) s.ttfb.record(ttfbMs);
+            s.addCall(failed, cacheHit, bytesSent, bytesReceived);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.temp.network;
+
+import com.example.temp.model.NotesModel;
+
+/** {@code GET /notes/{note_id}} */
+public class NoteResponse {
+    public boolean success;
+    public NotesModel note;
+}
@@ -0,0 +1,18 @@
+package com.example.temp.network;
+
+import com.example.temp.model.NotesModel;
+
+import java.util.List;
+
+/**
+ * {@code GET /notes/changes?since=cursor}. When {@code full} is true the server could not
+ * compute a delta (no cursor, or one older than its tombstones) and {@code changed} is the whole
+ * catalog, to be used as-is rather than merged.
+ */
+public class NotesChangesResponse {
+    public boolean success;
+    public boolean full;
+    public String cursor;
+    public List<NotesModel> changed;
+    public List<String> deleted;
+}
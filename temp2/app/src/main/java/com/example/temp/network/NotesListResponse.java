@@ -0,0 +1,14 @@
+package com.example.temp.network;
+
+import com.example.temp.model.NotesModel;
+
+import java.util.List;
+
+/** {@code GET /notes/} */
+public class NotesListResponse {
+    public boolean success;
+    public int count;
+    public List<NotesModel> notes;
+    /** Sync cursor for {@code GET /notes/changes}; null from servers without delta sync. */
+    public String cursor;
+}
@@ -0,0 +1,17 @@
+package com.example.temp.network;
+
+import com.example.temp.model.NotesModel;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+
+/** One page of {@code GET /notes/?limit=N&cursor=...}. */
+public class NotesPageResponse {
+    public boolean success;
+    public List<NotesModel> notes;
+    /** Pass back as {@code cursor} for the next page; null on the last page. */
+    @SerializedName("next_cursor")
+    public String nextCursor;
+    /** Notes across all pages. */
+    public int total;
+}
@@ -0,0 +1,30 @@
+package com.example.temp.network;
+
+import com.google.gson.JsonObject;
+
+import java.util.List;
+
+/**
+ * {@code POST /ocr/extract-timetable}. With {@code page_number} the backend returns a single
+ * {@link #data}; otherwise one entry per page in {@link #results}. The raw OCR markdown is
+ * skipped while parsing (see {@link TempusJson}).
+ */
+public class OcrResponse {
+    public boolean success;
+    public int totalPages;
+    public int processedPage;
+    public JsonObject data;
+    public List<Page> results;
+
+    public static class Page {
+        public int pageNumber;
+        public JsonObject data;
+    }
+
+    /** Timetable of the processed page, or of the first page when the whole file was sent. */
+    public JsonObject timetable() {
+        if (data != null) return data;
+        if (results != null && !results.isEmpty()) return results.get(0).data;
+        return null;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.temp.network;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+
+/**
+ * Wraps a request body and reports {@code base + bytes written} to an {@link UploadProgress} as
+ * the bytes go out. A retried call writes the body again; the count restarts from {@code base}
+ * and the extra write is counted in {@link #attempts()}.
+ */
+public class ProgressRequestBody extends RequestBody {
+
+    private final RequestBody delegate;
+    private final UploadProgress progress;
+    private final long base;
+    private int attempts;
+
+    public ProgressRequestBody(@NonNull RequestBody delegate, @NonNull UploadProgress progress, long base) {
+        this.delegate = delegate;
+        this.progress = progress;
+        this.base = base;
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public boolean isOneShot() {
+        return delegate.isOneShot();
+    }
+
+    /** How many times the body was written, i.e. 1 + retries. */
+    public synchronized int attempts() {
+        return attempts;
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        synchronized (this) {
+            attempts++;
+        }
+        progress.update(base);
+        BufferedSink counting = Okio.buffer(new ForwardingSink(sink) {
+            private long written;
+
+            @Override
+            public void write(@NonNull Buffer source, long byteCount) throws IOException {
+                super.write(source, byteCount);
+                written += byteCount;
+                progress.update(base + written);
+            }
+        });
+        delegate.writeTo(counting);
+        // Flushes our buffer into the real sink; the real sink itself is left to OkHttp
+        counting.emit();
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.temp.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Admits calls to the shared client by priority class, so background work never sits between
+ * the user and what they are waiting for. Asynchronous calls go through {@link #enqueue};
+ * calls made on a background thread go through {@link #execute}, which blocks for a slot in
+ * the same classes (OkHttp itself doesn't count synchronous calls against any limit).
+ *
+ * <ul>
+ *   <li>Each class has its own in-flight limit; the dispatcher's per-host limit is set to
+ *   their sum ({@link #maxInFlight()}), so an admitted call is never queued again inside
+ *   OkHttp.</li>
+ *   <li>{@link Priority#PREFETCH} calls only start while nothing of a higher class is running
+ *   or waiting.</li>
+ *   <li>A {@link Priority#USER_BLOCKING} call preempts prefetches that haven't got a response
+ *   yet: they are cancelled and re-queued (as a fresh clone) at the head of their class.
+ *   Blocking calls are never preempted: their request body may already be half sent.</li>
+ * </ul>
+ *
+ * Callbacks run on OkHttp dispatcher threads, as with {@link Call#enqueue}.
+ */
+public class RequestScheduler {
+
+    public enum Priority {
+        /** The user is looking at a spinner until this finishes. */
+        USER_BLOCKING(5),
+        /** Feeds something on screen, but the screen is usable meanwhile. */
+        VISIBLE(3),
+        /** Speculative; only runs when the link is otherwise idle. */
+        PREFETCH(2);
+
+        final int maxInFlight;
+
+        Priority(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+    }
+
+    /** Sum of the class limits: the most calls this ever has running at once. */
+    public static int maxInFlight() {
+        int total = 0;
+        for (Priority p : Priority.values()) total += p.maxInFlight;
+        return total;
+    }
+
+    /** Handle on a scheduled call. */
+    public static final class Job {
+        private final Callback callback; // null for a blocking call, whose thread runs it itself
+        // All mutable state is guarded by LOCK
+        private Call call;
+        private Priority priority;
+        private boolean queued;
+        private boolean running;
+        private boolean responded;
+        private boolean preempted;
+        private boolean cancelled;
+        private boolean done;
+
+        private Job(Call call, Priority priority, Callback callback) {
+            this.call = call;
+            this.priority = priority;
+            this.callback = callback;
+        }
+
+        /** Cancels the call wherever it is; the callback gets a single {@code onFailure}. */
+        public void cancel() {
+            Call toCancel;
+            boolean wasQueued;
+            synchronized (LOCK) {
+                if (done || cancelled) return;
+                cancelled = true;
+                wasQueued = queued;
+                if (wasQueued) {
+                    QUEUES.get(priority).remove(this);
+                    queued = false;
+                    done = true;
+                }
+                toCancel = call;
+            }
+            toCancel.cancel();
+            if (wasQueued) callback.onFailure(toCancel, new IOException("Canceled"));
+        }
+
+        /** Moves the job up to a more urgent class (no-op if it's already there or above). */
+        public void raise(@NonNull Priority newPriority) {
+            List<Job> toStart;
+            synchronized (LOCK) {
+                if (done || newPriority.ordinal() >= priority.ordinal()) return;
+                if (queued) {
+                    QUEUES.get(priority).remove(this);
+                    QUEUES.get(newPriority).addLast(this);
+                } else if (running) {
+                    IN_FLIGHT.put(priority, IN_FLIGHT.get(priority) - 1);
+                    IN_FLIGHT.put(newPriority, IN_FLIGHT.get(newPriority) + 1);
+                }
+                priority = newPriority;
+                if (newPriority == Priority.USER_BLOCKING) preemptPrefetches();
+                toStart = admit();
+            }
+            startAll(toStart);
+        }
+    }
+
+    private static final Object LOCK = new Object();
+    private static final Map<Priority, ArrayDeque<Job>> QUEUES = new EnumMap<>(Priority.class);
+    private static final Map<Priority, Integer> IN_FLIGHT = new EnumMap<>(Priority.class);
+    private static final List<Job> RUNNING = new ArrayList<>(); // to find prefetches to preempt
+
+    static {
+        for (Priority p : Priority.values()) {
+            QUEUES.put(p, new ArrayDeque<>());
+            IN_FLIGHT.put(p, 0);
+        }
+    }
+
+    /** Schedules {@code call} (not yet executed) in the given class. */
+    public static Job enqueue(@NonNull Call call, @NonNull Priority priority, @NonNull Callback callback) {
+        Job job = new Job(call, priority, callback);
+        List<Job> toStart;
+        synchronized (LOCK) {
+            job.queued = true;
+            QUEUES.get(priority).addLast(job);
+            if (priority == Priority.USER_BLOCKING) preemptPrefetches();
+            toStart = admit();
+        }
+        startAll(toStart);
+        return job;
+    }
+
+    /**
+     * Blocking counterpart of {@link #enqueue}: waits for a slot in {@code priority}, then runs
+     * {@code call} on the calling thread. The slot is held until the response is closed. Never
+     * call on the main thread.
+     */
+    public static Response execute(@NonNull Call call, @NonNull Priority priority) throws IOException {
+        Job job = acquire(priority);
+        Response response;
+        try {
+            response = call.execute();
+        } catch (IOException | RuntimeException e) {
+            release(job);
+            throw e;
+        }
+        ResponseBody body = response.body();
+        if (body == null) {
+            release(job);
+            return response;
+        }
+        ForwardingSource releasing = new ForwardingSource(body.source()) {
+            private boolean released;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (!released) {
+                        released = true;
+                        release(job);
+                    }
+                }
+            }
+        };
+        return response.newBuilder()
+                .body(ResponseBody.create(Okio.buffer(releasing), body.contentType(), body.contentLength()))
+                .build();
+    }
+
+    /**
+     * {@link #execute(Call, Priority)} for a Retrofit call. Retrofit has read and converted the
+     * body by the time it returns, so the slot is released straight away.
+     */
+    public static <T> retrofit2.Response<T> execute(@NonNull retrofit2.Call<T> call, @NonNull Priority priority)
+            throws IOException {
+        Job job = acquire(priority);
+        try {
+            return call.execute();
+        } finally {
+            release(job);
+        }
+    }
+
+    /** Queues a blocking job and waits until it's admitted. */
+    private static Job acquire(Priority priority) throws IOException {
+        Job job = new Job(null, priority, null);
+        List<Job> toStart;
+        synchronized (LOCK) {
+            job.queued = true;
+            QUEUES.get(priority).addLast(job);
+            if (priority == Priority.USER_BLOCKING) preemptPrefetches();
+            toStart = admit();
+        }
+        startAll(toStart);
+        synchronized (LOCK) {
+            try {
+                while (job.queued) LOCK.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (job.queued) {
+                    QUEUES.get(priority).remove(job);
+                    job.queued = false;
+                    job.done = true;
+                    throw new InterruptedIOException("Interrupted waiting for a " + priority + " slot");
+                }
+                // Admitted just as the interrupt came: go ahead, the call itself will notice
+            }
+        }
+        return job;
+    }
+
+    /** Gives a blocking job's slot back. */
+    private static void release(Job job) {
+        List<Job> toStart;
+        synchronized (LOCK) {
+            if (!job.running) return;
+            job.running = false;
+            job.done = true;
+            RUNNING.remove(job);
+            IN_FLIGHT.put(job.priority, IN_FLIGHT.get(job.priority) - 1);
+            toStart = admit();
+        }
+        startAll(toStart);
+    }
+
+    /** One-line view of the queues for the diagnostics screen. */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (LOCK) {
+            for (Priority p : Priority.values()) {
+                if (sb.length() > 0) sb.append("  ");
+                sb.append(p.name().toLowerCase()).append(' ')
+                        .append(IN_FLIGHT.get(p)).append('/').append(p.maxInFlight)
+                        .append(" running, ").append(QUEUES.get(p).size()).append(" waiting");
+            }
+        }
+        return sb.toString();
+    }
+
+    // Caller holds LOCK. Picks the jobs that may start now, most urgent class first.
+    private static List<Job> admit() {
+        List<Job> toStart = new ArrayList<>();
+        for (Priority p : Priority.values()) {
+            ArrayDeque<Job> queue = QUEUES.get(p);
+            while (!queue.isEmpty() && canStart(p)) {
+                Job job = queue.pollFirst();
+                job.queued = false;
+                job.running = true;
+                IN_FLIGHT.put(p, IN_FLIGHT.get(p) + 1);
+                RUNNING.add(job);
+                // A blocking caller is waiting on LOCK and starts its call itself
+                if (job.callback == null) LOCK.notifyAll();
+                else toStart.add(job);
+            }
+        }
+        return toStart;
+    }
+
+    // Caller holds LOCK
+    private static boolean canStart(Priority p) {
+        if (IN_FLIGHT.get(p) >= p.maxInFlight) return false;
+        if (p != Priority.PREFETCH) return true;
+        return IN_FLIGHT.get(Priority.USER_BLOCKING) == 0 && IN_FLIGHT.get(Priority.VISIBLE) == 0
+                && QUEUES.get(Priority.USER_BLOCKING).isEmpty() && QUEUES.get(Priority.VISIBLE).isEmpty();
+    }
+
+    // Caller holds LOCK. Once a response has arrived the body is being read: let it finish.
+    private static void preemptPrefetches() {
+        for (Job job : new ArrayList<>(RUNNING)) {
+            if (job.priority == Priority.PREFETCH && job.callback != null && !job.responded && !job.preempted) {
+                job.preempted = true;
+                job.call.cancel();
+            }
+        }
+    }
+
+    private static void startAll(List<Job> jobs) {
+        for (Job job : jobs) {
+            Call call;
+            synchronized (LOCK) {
+                call = job.call;
+            }
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                    if (finish(job, call)) job.callback.onFailure(call, e);
+                }
+
+                @Override
+                public void onResponse(@NonNull Call call, @NonNull Response response) {
+                    boolean accepted;
+                    synchronized (LOCK) {
+                        accepted = !job.preempted;
+                        if (accepted) job.responded = true;
+                    }
+                    if (!accepted) {
+                        // Preempted just as the response arrived; it will be fetched again
+                        response.close();
+                        finish(job, call);
+                        return;
+                    }
+                    try {
+                        job.callback.onResponse(call, response);
+                    } finally {
+                        finish(job, call);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Releases the job's slot and starts whatever may run now. Returns false if the job was
+     * preempted and re-queued, i.e. the outcome must not reach the callback.
+     */
+    private static boolean finish(Job job, Call call) {
+        boolean deliver;
+        List<Job> toStart;
+        synchronized (LOCK) {
+            if (job.call != call || !job.running) return false; // stale call from before a requeue
+            job.running = false;
+            RUNNING.remove(job);
+            IN_FLIGHT.put(job.priority, IN_FLIGHT.get(job.priority) - 1);
+            if (job.preempted && !job.cancelled && !job.responded) {
+                job.preempted = false;
+                job.call = call.clone();
+                job.queued = true;
+                QUEUES.get(job.priority).addFirst(job);
+                deliver = false;
+            } else {
+                job.done = true;
+                deliver = true;
+            }
+            toStart = admit();
+        }
+        startAll(toStart);
+        return deliver;
+    }
+}
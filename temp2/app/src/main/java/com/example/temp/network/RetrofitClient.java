@@ -6,14 +6,22 @@ import retrofit2.converter.gson.GsonConverterFactory;
 public class RetrofitClient {
 
     private static Retrofit retrofit;
+    private static TempusApi api;
 
-    public static Retrofit get() {
+    public static synchronized Retrofit get() {
         if (retrofit == null) {
             retrofit = new Retrofit.Builder()
-                    .baseUrl("https://tempus-api.neurotechh.xyz/")
-                    .addConverterFactory(GsonConverterFactory.create())
+                    .baseUrl(ApiClient.BASE_URL + "/")
+                    .client(ApiClient.getClient())
+                    // Streams responses through the model adapters in TempusJson
+                    .addConverterFactory(GsonConverterFactory.create(TempusJson.gson()))
                     .build();
         }
         return retrofit;
     }
+
+    public static synchronized TempusApi api() {
+        if (api == null) api = get().create(TempusApi.class);
+        return api;
+    }
 }
@@ -0,0 +1,218 @@
+package com.example.temp.network;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.temp.utils.CacheHelper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import okhttp3.CacheControl;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Conditional-GET wrapper for a single JSON resource. The last body is persisted to a file and
+ * its ETag / Last-Modified validators to {@link CacheHelper}; a 304 reuses the already parsed
+ * value without downloading or parsing anything.
+ *
+ * <p>A 200 body is parsed straight off the socket while the same bytes are teed into the file,
+ * so the payload is never held in memory as a whole.
+ */
+public class RevalidatingFetcher<T> {
+
+    public interface Parser<T> {
+        T parse(Reader body) throws Exception;
+    }
+
+    public interface Serializer<T> {
+        void write(T value, Writer out) throws IOException;
+    }
+
+    /** Value returned by a fetch, plus whether the server said it was unchanged. */
+    public static class Result<T> {
+        public final T value;
+        public final boolean notModified;
+
+        Result(T value, boolean notModified) {
+            this.value = value;
+            this.notModified = notModified;
+        }
+    }
+
+    private final Context context;
+    private final String url;
+    private final String cacheKey;
+    private final Parser<T> parser;
+    private final File bodyFile;
+
+    private T parsed; // in-memory copy of the last good body, parsed once
+    private String etag;
+    private String lastModified;
+
+    public RevalidatingFetcher(@NonNull Context context, @NonNull String url,
+                               @NonNull String cacheKey, @NonNull Parser<T> parser) {
+        this.context = context.getApplicationContext();
+        this.url = url;
+        this.cacheKey = cacheKey;
+        this.parser = parser;
+        this.bodyFile = new File(new File(this.context.getFilesDir(), "http_bodies"), cacheKey + ".json");
+        this.etag = CacheHelper.getJson(this.context, cacheKey + "_etag");
+        this.lastModified = CacheHelper.getJson(this.context, cacheKey + "_last_modified");
+        // Bodies used to be kept in the prefs file itself; drop any leftover copy
+        CacheHelper.clear(this.context, cacheKey);
+    }
+
+    /** Request for the resource, carrying the stored validators when there is a body to reuse. */
+    public synchronized Request newRequest() {
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                // We keep our own copy of the body; don't store it a second time in the HTTP cache
+                .cacheControl(new CacheControl.Builder().noStore().build());
+        if (parsed != null || bodyFile.exists()) {
+            if (etag != null) builder.header("If-None-Match", etag);
+            if (lastModified != null) builder.header("If-Modified-Since", lastModified);
+        }
+        return builder.build();
+    }
+
+    /** Turns a response to {@link #newRequest()} into a value. Closes the response. */
+    public Result<T> handle(@NonNull Response response) throws IOException {
+        try (Response r = response) {
+            if (r.code() == 304) {
+                T cached = cachedValue();
+                if (cached != null) return new Result<>(cached, true);
+                throw new IOException("304 without a stored body for " + url);
+            }
+            if (!r.isSuccessful() || r.body() == null) {
+                throw new IOException("HTTP " + r.code() + " for " + url);
+            }
+
+            File tmp = new File(bodyFile.getPath() + ".tmp");
+            T value = parseTeeingTo(r.body().source(), tmp);
+            store(tmp, value, r.header("ETag"), r.header("Last-Modified"));
+            return new Result<>(value, false);
+        }
+    }
+
+    /** Blocking fetch on the shared client, scheduled at {@code priority}. Not on the main thread. */
+    public Result<T> fetch(@NonNull RequestScheduler.Priority priority) throws IOException {
+        return handle(RequestScheduler.execute(ApiClient.getClient().newCall(newRequest()), priority));
+    }
+
+    /** Last known value (memory first, then the persisted body), or null if never fetched. */
+    @Nullable
+    public synchronized T cachedValue() {
+        if (parsed != null || !bodyFile.exists()) return parsed;
+        try (Reader reader = new InputStreamReader(Okio.buffer(Okio.source(bodyFile)).inputStream(),
+                StandardCharsets.UTF_8)) {
+            parsed = parser.parse(reader);
+        } catch (Exception e) {
+            // Corrupt copy: forget it (and its validators) so the next fetch is unconditional
+            clearLocked();
+        }
+        return parsed;
+    }
+
+    public synchronized void clear() {
+        clearLocked();
+    }
+
+    /**
+     * Replaces the stored body with a value built locally (e.g. a merged delta). The server's
+     * validators don't describe it any more, so they are dropped and the next
+     * {@link #newRequest()} is unconditional.
+     */
+    public synchronized void replace(@NonNull T value, @NonNull Serializer<T> serializer) throws IOException {
+        File tmp = new File(bodyFile.getPath() + ".tmp");
+        ensureParent(tmp);
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            serializer.write(value, out);
+        } catch (IOException | RuntimeException e) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw e instanceof IOException ? (IOException) e : new IOException("Cannot write " + tmp, e);
+        }
+        store(tmp, value, null, null);
+    }
+
+    private T parseTeeingTo(BufferedSource network, File tmp) throws IOException {
+        ensureParent(tmp);
+
+        try (BufferedSink file = Okio.buffer(Okio.sink(tmp))) {
+            BufferedSource tee = Okio.buffer(new ForwardingSource(network) {
+                @Override
+                public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+                    long read = super.read(sink, byteCount);
+                    if (read > 0) {
+                        sink.copyTo(file.getBuffer(), sink.size() - read, read);
+                        file.emitCompleteSegments();
+                    }
+                    return read;
+                }
+            });
+            T value;
+            try {
+                value = parser.parse(new InputStreamReader(tee.inputStream(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Unparseable response for " + url, e);
+            }
+            // Whatever the parser didn't need (trailing whitespace) still belongs in the copy
+            tee.readAll(Okio.blackhole());
+            return value;
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw e;
+        }
+    }
+
+    private static void ensureParent(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+    }
+
+    private synchronized void store(File tmp, T value, String newEtag, String newLastModified) throws IOException {
+        if (!tmp.renameTo(bodyFile)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw new IOException("Cannot store " + bodyFile);
+        }
+        parsed = value;
+        etag = newEtag;
+        lastModified = newLastModified;
+        saveOrClear(cacheKey + "_etag", newEtag);
+        saveOrClear(cacheKey + "_last_modified", newLastModified);
+    }
+
+    private void clearLocked() {
+        parsed = null;
+        etag = null;
+        lastModified = null;
+        //noinspection ResultOfMethodCallIgnored
+        bodyFile.delete();
+        CacheHelper.clear(context, cacheKey + "_etag");
+        CacheHelper.clear(context, cacheKey + "_last_modified");
+    }
+
+    private void saveOrClear(String key, String value) {
+        if (value != null) CacheHelper.saveJson(context, key, value);
+        else CacheHelper.clear(context, key);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.temp.network;
+
+import com.example.temp.model.FloorRoom;
+
+/** {@code GET /floor/find/{type}/{number}} and {@code GET /floor/room/{id}} */
+public class RoomResponse {
+    public boolean success;
+    public FloorRoom room;
+}
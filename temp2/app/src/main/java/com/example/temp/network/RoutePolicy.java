@@ -0,0 +1,60 @@
+package com.example.temp.network;
+
+/**
+ * Network policy for the routes under one path prefix: socket timeouts, and optionally retries
+ * with jittered exponential backoff, an overall deadline per operation and a circuit breaker.
+ * Policies are declared in {@link ApiClient} and applied by {@link RoutePolicyInterceptor}.
+ */
+public class RoutePolicy {
+
+    final String pathPrefix;
+    final int connectSeconds;
+    final int readSeconds;
+    final int writeSeconds;
+
+    int maxAttempts = 1;
+    long backoffBaseMillis;
+    long backoffMaxMillis;
+    boolean retryNonIdempotent;
+    long deadlineMillis; // 0 = only the socket timeouts apply
+    CircuitBreaker breaker;
+
+    public RoutePolicy(String pathPrefix, int connectSeconds, int readSeconds, int writeSeconds) {
+        this.pathPrefix = pathPrefix;
+        this.connectSeconds = connectSeconds;
+        this.readSeconds = readSeconds;
+        this.writeSeconds = writeSeconds;
+    }
+
+    /**
+     * Retries connection failures, 429 and 5xx up to {@code maxAttempts} calls in total.
+     * Only GET/HEAD are retried unless {@link #retryingPosts()} is also set.
+     */
+    public RoutePolicy retrying(int maxAttempts, long backoffBaseMillis, long backoffMaxMillis) {
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+        return this;
+    }
+
+    /** Allows retrying non-idempotent requests; only for routes where a repeat is harmless. */
+    public RoutePolicy retryingPosts() {
+        this.retryNonIdempotent = true;
+        return this;
+    }
+
+    /** Upper bound on the whole operation, retries and backoff included. */
+    public RoutePolicy withDeadline(long deadlineSeconds) {
+        this.deadlineMillis = deadlineSeconds * 1000;
+        return this;
+    }
+
+    public RoutePolicy withCircuitBreaker(int failureThreshold, long openSeconds) {
+        this.breaker = new CircuitBreaker(failureThreshold, openSeconds * 1000);
+        return this;
+    }
+
+    boolean matches(String path) {
+        return path.startsWith(pathPrefix);
+    }
+}
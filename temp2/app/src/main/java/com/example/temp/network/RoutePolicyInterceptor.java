@@ -0,0 +1,147 @@
+package com.example.temp.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Applies the first matching {@link RoutePolicy} to each call: per-route timeouts (clamped to
+ * what's left of the deadline), fail-fast while the route's circuit is open, and retries with
+ * full-jitter exponential backoff.
+ */
+class RoutePolicyInterceptor implements Interceptor {
+
+    private final RoutePolicy[] policies;
+
+    RoutePolicyInterceptor(RoutePolicy[] policies) {
+        this.policies = policies;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        RoutePolicy policy = policyFor(request.url().encodedPath());
+        if (policy == null) return chain.proceed(request);
+
+        CircuitBreaker breaker = policy.breaker;
+        if (breaker != null && !breaker.allowRequest()) {
+            throw new CircuitOpenException(policy.pathPrefix, breaker.retryAfterMillis());
+        }
+
+        boolean settled = false; // whether the breaker has heard how this call went
+        try {
+            long start = System.currentTimeMillis();
+            long deadline = policy.deadlineMillis > 0 ? start + policy.deadlineMillis : Long.MAX_VALUE;
+            int maxAttempts = canRetry(request, policy) ? policy.maxAttempts : 1;
+
+            for (int attempt = 1; ; attempt++) {
+                // A retry may be let through as the trial of a circuit that opened meanwhile
+                settled = false;
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    if (breaker != null) breaker.recordFailure();
+                    settled = true;
+                    throw new InterruptedIOException("Deadline exceeded for " + request.url().encodedPath());
+                }
+
+                Response response;
+                try {
+                    response = chain
+                            .withConnectTimeout(clamp(policy.connectSeconds, remaining), TimeUnit.MILLISECONDS)
+                            .withReadTimeout(clamp(policy.readSeconds, remaining), TimeUnit.MILLISECONDS)
+                            .withWriteTimeout(clamp(policy.writeSeconds, remaining), TimeUnit.MILLISECONDS)
+                            .proceed(request);
+                } catch (IOException e) {
+                    if (chain.call().isCanceled()) throw e; // the caller gave up, not the server
+                    if (breaker != null) breaker.recordFailure();
+                    settled = true;
+                    if (attempt >= maxAttempts || (breaker != null && !breaker.allowRequest())
+                            || !sleepBeforeRetry(policy, attempt, -1, deadline)) {
+                        throw e;
+                    }
+                    continue;
+                }
+
+                if (!isRetryableStatus(response.code())) {
+                    if (breaker != null) {
+                        if (response.code() >= 500) breaker.recordFailure();
+                        else breaker.recordSuccess();
+                    }
+                    settled = true;
+                    return response;
+                }
+
+                if (breaker != null) breaker.recordFailure();
+                settled = true;
+                if (attempt >= maxAttempts || (breaker != null && !breaker.allowRequest())) return response;
+
+                long retryAfter = retryAfterMillis(response);
+                if (!sleepBeforeRetry(policy, attempt, retryAfter, deadline)) return response;
+                response.close();
+            }
+        } finally {
+            // Cancelled, or failed in some unexpected way: don't leave a half-open circuit waiting
+            if (breaker != null && !settled) breaker.recordAbandoned();
+        }
+    }
+
+    private RoutePolicy policyFor(String path) {
+        for (RoutePolicy policy : policies) {
+            if (policy.matches(path)) return policy;
+        }
+        return null;
+    }
+
+    private static boolean canRetry(Request request, RoutePolicy policy) {
+        if (policy.maxAttempts <= 1) return false;
+        if (request.body() != null && request.body().isOneShot()) return false;
+        String method = request.method();
+        return policy.retryNonIdempotent || "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    private static boolean isRetryableStatus(int code) {
+        // 501/505 won't change on a retry; everything else 5xx may be a transient overload
+        return code == 429 || (code >= 500 && code != 501 && code != 505);
+    }
+
+    private static int clamp(int timeoutSeconds, long remainingMillis) {
+        return (int) Math.max(1, Math.min(timeoutSeconds * 1000L, remainingMillis));
+    }
+
+    private static long retryAfterMillis(Response response) {
+        String header = response.header("Retry-After");
+        if (header == null) return -1;
+        try {
+            return Long.parseLong(header.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return -1; // HTTP-date form isn't worth supporting here
+        }
+    }
+
+    /**
+     * Sleeps for the backoff of the given attempt (or the server's Retry-After). Returns false
+     * without sleeping if that would run past the deadline.
+     */
+    private static boolean sleepBeforeRetry(RoutePolicy policy, int attempt, long retryAfterMillis,
+                                            long deadline) throws InterruptedIOException {
+        long cap = Math.min(policy.backoffMaxMillis, policy.backoffBaseMillis << Math.min(attempt - 1, 16));
+        long delay = ThreadLocalRandom.current().nextLong(cap + 1); // full jitter
+        if (retryAfterMillis > delay) delay = retryAfterMillis;
+        if (System.currentTimeMillis() + delay >= deadline) return false;
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during retry backoff");
+        }
+    }
+}
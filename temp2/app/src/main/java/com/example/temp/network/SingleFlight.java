@@ -0,0 +1,131 @@
+package com.example.temp.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Coalesces identical in-flight requests. Calls are keyed by method + URL: while one is running,
+ * later callers for the same key join it instead of hitting the network again, and the response
+ * is decoded once and handed to all of them. The underlying call is cancelled only when every
+ * subscriber has cancelled.
+ *
+ * <p>Calls go through {@link RequestScheduler}; a joiner with a more urgent priority raises the
+ * shared call to it. Callers sharing a key must decode it the same way, since only the first
+ * decoder runs. Listeners are invoked on an OkHttp dispatcher thread.
+ */
+public class SingleFlight {
+
+    public interface Decoder<T> {
+        /** Turns the response into a value. Runs once per flight; must close the response. */
+        T decode(@NonNull Response response) throws IOException;
+    }
+
+    public interface Listener<T> {
+        void onResult(T value);
+
+        void onFailure(@NonNull IOException e);
+    }
+
+    public interface Subscription {
+        /** Stops delivery to this subscriber; cancels the request if nobody else is waiting. */
+        void cancel();
+    }
+
+    private static final Map<String, Flight<?>> inFlight = new HashMap<>();
+
+    /** Same as {@link #enqueue(Request, RequestScheduler.Priority, Decoder, Listener)} at VISIBLE priority. */
+    public static <T> Subscription enqueue(@NonNull Request request, @NonNull Decoder<T> decoder,
+                                           @NonNull Listener<T> listener) {
+        return enqueue(request, RequestScheduler.Priority.VISIBLE, decoder, listener);
+    }
+
+    /** Schedules {@code request} on the shared client, or joins the identical call already running. */
+    @SuppressWarnings("unchecked")
+    public static <T> Subscription enqueue(@NonNull Request request, @NonNull RequestScheduler.Priority priority,
+                                           @NonNull Decoder<T> decoder, @NonNull Listener<T> listener) {
+        String key = request.method() + " " + request.url();
+        Flight<T> flight;
+        synchronized (inFlight) {
+            flight = (Flight<T>) inFlight.get(key);
+            if (flight == null) {
+                flight = new Flight<>(key, decoder);
+                inFlight.put(key, flight);
+                flight.listeners.add(listener);
+                // Scheduled under the lock so an early unsubscribe always finds the job
+                flight.job = RequestScheduler.enqueue(ApiClient.getClient().newCall(request), priority, flight);
+            } else {
+                flight.listeners.add(listener);
+                flight.job.raise(priority);
+            }
+        }
+
+        Flight<T> joined = flight;
+        return () -> joined.unsubscribe(listener);
+    }
+
+    private static class Flight<T> implements Callback {
+        final String key;
+        final Decoder<T> decoder;
+        final List<Listener<T>> listeners = new ArrayList<>(); // guarded by inFlight
+        RequestScheduler.Job job; // set once, under inFlight
+
+        Flight(String key, Decoder<T> decoder) {
+            this.key = key;
+            this.decoder = decoder;
+        }
+
+        void unsubscribe(Listener<T> listener) {
+            boolean cancel;
+            synchronized (inFlight) {
+                if (!listeners.remove(listener)) return;
+                cancel = listeners.isEmpty();
+                if (cancel && inFlight.get(key) == this) inFlight.remove(key);
+            }
+            if (cancel) job.cancel();
+        }
+
+        @Override
+        public void onFailure(@NonNull Call call, @NonNull IOException e) {
+            for (Listener<T> l : finish()) l.onFailure(e);
+        }
+
+        @Override
+        public void onResponse(@NonNull Call call, @NonNull Response response) {
+            T value;
+            try {
+                value = decoder.decode(response);
+            } catch (IOException e) {
+                onFailure(call, e);
+                return;
+            } catch (Throwable t) {
+                // A decoder bug or an OOM decoding a bitmap must still end the flight, or every
+                // later caller for this key would join one that never completes
+                onFailure(call, new IOException("Decoding " + key + " failed", t));
+                return;
+            } finally {
+                response.close();
+            }
+            for (Listener<T> l : finish()) l.onResult(value);
+        }
+
+        /** Detaches the flight so new callers start a fresh request, and returns who to notify. */
+        private List<Listener<T>> finish() {
+            synchronized (inFlight) {
+                if (inFlight.get(key) == this) inFlight.remove(key);
+                List<Listener<T>> snapshot = new ArrayList<>(listeners);
+                listeners.clear();
+                return snapshot;
+            }
+        }
+    }
+}
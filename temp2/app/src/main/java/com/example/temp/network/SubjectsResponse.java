@@ -0,0 +1,14 @@
+package com.example.temp.network;
+
+import java.util.List;
+
+/** {@code GET /notes/subjects/list} */
+public class SubjectsResponse {
+    public boolean success;
+    public List<Subject> subjects;
+
+    public static class Subject {
+        public String name;
+        public int count;
+    }
+}
@@ -3,12 +3,41 @@ package com.example.temp.network;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
 import retrofit2.Call;
+import retrofit2.http.Body;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Multipart;
 import retrofit2.http.POST;
+import retrofit2.http.PUT;
 import retrofit2.http.Part;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
 
 public interface TempusApi {
 
+    // ------------------ Notes ------------------
+
+    @GET("notes/")
+    Call<NotesListResponse> getNotes(
+            @Query("subject") String subject,
+            @Query("year") String year,
+            @Query("search") String search
+    );
+
+    /** One page of the listing, newest first; {@code cursor} is null for the first page. */
+    @GET("notes/")
+    Call<NotesPageResponse> getNotesPage(@Query("limit") int limit, @Query("cursor") String cursor);
+
+    /** Notes changed and ids deleted since {@code since}; see {@link NotesChangesResponse}. */
+    @GET("notes/changes")
+    Call<NotesChangesResponse> getNoteChanges(@Query("since") String since);
+
+    @GET("notes/{note_id}")
+    Call<NoteResponse> getNote(@Path("note_id") String noteId);
+
+    @GET("notes/subjects/list")
+    Call<SubjectsResponse> getSubjects();
+
     @Multipart
     @POST("notes/upload/")
     Call<UploadResponse> uploadNote(
@@ -17,4 +46,71 @@ public interface TempusApi {
             @Part("year") RequestBody year,
             @Part("uploaded_by") RequestBody uploader
     );
+
+    // Resumable uploads; ChunkedUploader drives these
+
+    @POST("notes/uploads")
+    Call<UploadSessionResponse> startUpload(
+            @Query("total_size") long totalSize,
+            @Query("file_name") String fileName,
+            @Query("subject") String subject,
+            @Query("content_type") String contentType,
+            @Query("chunk_size") int chunkSize,
+            @Query("year") String year,
+            @Query("uploaded_by") String uploader
+    );
+
+    @GET("notes/uploads/{upload_id}")
+    Call<UploadSessionResponse> getUploadStatus(@Path("upload_id") String uploadId);
+
+    @PUT("notes/uploads/{upload_id}")
+    Call<UploadSessionResponse> uploadChunk(
+            @Path("upload_id") String uploadId,
+            @Query("offset") long offset,
+            @Header("X-Chunk-SHA256") String sha256,
+            @Body RequestBody chunk
+    );
+
+    @POST("notes/uploads/{upload_id}/complete")
+    Call<UploadResponse> completeUpload(@Path("upload_id") String uploadId);
+
+    // ------------------ Floor plans ------------------
+
+    @GET("floor/")
+    Call<FloorsResponse> getFloors();
+
+    @GET("floor/list")
+    Call<FloorListResponse> listFloors();
+
+    @GET("floor/find/{room_type}/{room_number}")
+    Call<RoomResponse> findRoom(@Path("room_type") String roomType, @Path("room_number") String roomNumber);
+
+    @GET("floor/room/{room_id}")
+    Call<RoomResponse> getRoom(@Path("room_id") String roomId);
+
+    // ------------------ OCR ------------------
+
+    /**
+     * {@code pageNumber} is 1-based; pass null to process every page. Results for PDFs are kept
+     * by the server under the hash of the upload and the page.
+     */
+    @Multipart
+    @POST("ocr/extract-timetable")
+    Call<OcrResponse> extractTimetable(
+            @Part MultipartBody.Part file,
+            @Query("page_number") Integer pageNumber
+    );
+
+    /**
+     * Timetable already extracted from page {@code page} (1-based) of a document with this
+     * SHA-256; with a null page, every page, if the whole document was sent. 404 if there is none.
+     */
+    @GET("ocr/result/{sha256}")
+    Call<OcrResponse> getOcrResult(@Path("sha256") String sha256, @Query("page") Integer page);
+
+    // ------------------ Crowd ------------------
+
+    @Multipart
+    @POST("crowd/count")
+    Call<CrowdResponse> countCrowd(@Part MultipartBody.Part video);
 }
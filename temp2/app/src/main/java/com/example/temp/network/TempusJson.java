@@ -0,0 +1,307 @@
+package com.example.temp.network;
+
+import com.example.temp.model.FloorRoom;
+import com.example.temp.model.NotesModel;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gson set up for the Tempus API. The model types are read with hand-written streaming
+ * adapters: fields go from the {@link JsonReader} straight into the model constructors, with no
+ * intermediate String or JSON tree, and bulky fields the app never uses are skipped unread.
+ */
+public class TempusJson {
+
+    // Plain tree adapter for the free-form timetable objects inside OCR responses
+    private static final TypeAdapter<JsonObject> JSON_OBJECT = new Gson().getAdapter(JsonObject.class);
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(NotesModel.class, new NotesModelAdapter().nullSafe())
+            .registerTypeAdapter(FloorRoom.class, new FloorRoomAdapter().nullSafe())
+            .registerTypeAdapter(OcrResponse.class, new OcrResponseAdapter().nullSafe())
+            .registerTypeAdapter(CrowdResponse.class, new CrowdResponseAdapter().nullSafe())
+            .create();
+
+    public static Gson gson() {
+        return GSON;
+    }
+
+    static String nextStringOrNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    static long nextLongOrZero(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextLong();
+    }
+
+    static double nextDoubleOrZero(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextDouble();
+    }
+
+    private static JsonObject nextObjectOrNull(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return null;
+        }
+        return JSON_OBJECT.read(in);
+    }
+
+    private static void writeStringList(JsonWriter out, List<String> values) throws IOException {
+        if (values == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (String v : values) out.value(v);
+        out.endArray();
+    }
+
+    static class NotesModelAdapter extends TypeAdapter<NotesModel> {
+        @Override
+        public NotesModel read(JsonReader in) throws IOException {
+            String id = null, name = null, subject = null, year = null, uploadedBy = null;
+            String filePath = null, uploadDate = null, description = null;
+            long fileSize = 0;
+            List<String> tags = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": id = nextStringOrNull(in); break;
+                    case "name": name = nextStringOrNull(in); break;
+                    case "subject": subject = nextStringOrNull(in); break;
+                    case "year": year = nextStringOrNull(in); break;
+                    case "uploaded_by": uploadedBy = nextStringOrNull(in); break;
+                    case "file_path": filePath = nextStringOrNull(in); break;
+                    case "upload_date": uploadDate = nextStringOrNull(in); break;
+                    case "file_size": fileSize = nextLongOrZero(in); break;
+                    case "description": description = nextStringOrNull(in); break;
+                    case "tags":
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                            break;
+                        }
+                        tags = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            String tag = nextStringOrNull(in);
+                            if (tag != null) tags.add(tag);
+                        }
+                        in.endArray();
+                        break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new NotesModel(id, name, subject, year != null ? year : "", uploadedBy, filePath,
+                    uploadDate, fileSize, description, tags);
+        }
+
+        @Override
+        public void write(JsonWriter out, NotesModel m) throws IOException {
+            out.beginObject();
+            out.name("id").value(m.getId());
+            out.name("name").value(m.getName());
+            out.name("subject").value(m.getSubject());
+            out.name("year").value(m.getYear());
+            out.name("uploaded_by").value(m.getUploadedBy());
+            out.name("file_path").value(m.getFilePath());
+            out.name("upload_date").value(m.getUploadDate());
+            out.name("file_size").value(m.getFileSize());
+            out.name("description").value(m.getDescription());
+            out.name("tags");
+            writeStringList(out, m.getTags());
+            out.endObject();
+        }
+    }
+
+    static class FloorRoomAdapter extends TypeAdapter<FloorRoom> {
+        @Override
+        public FloorRoom read(JsonReader in) throws IOException {
+            String id = null, floor = null, roomNumber = null, roomType = null, roomTypeFull = null;
+            String imagePath = null, lastUpdated = null;
+            long fileSize = 0;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": id = nextStringOrNull(in); break;
+                    case "floor": floor = nextStringOrNull(in); break;
+                    case "room_number": roomNumber = nextStringOrNull(in); break;
+                    case "room_type": roomType = nextStringOrNull(in); break;
+                    case "room_type_full": roomTypeFull = nextStringOrNull(in); break;
+                    case "image_path": imagePath = nextStringOrNull(in); break;
+                    case "file_size": fileSize = nextLongOrZero(in); break;
+                    case "last_updated": lastUpdated = nextStringOrNull(in); break;
+                    // image_url points at the server's own localhost; we build URLs from image_path
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new FloorRoom(id, floor, roomNumber, roomType, roomTypeFull, imagePath, fileSize, lastUpdated);
+        }
+
+        @Override
+        public void write(JsonWriter out, FloorRoom r) throws IOException {
+            out.beginObject();
+            out.name("id").value(r.getId());
+            out.name("floor").value(r.getFloor());
+            out.name("room_number").value(r.getRoomNumber());
+            out.name("room_type").value(r.getRoomType());
+            out.name("room_type_full").value(r.getRoomTypeFull());
+            out.name("image_path").value(r.getImagePath());
+            out.name("file_size").value(r.getFileSize());
+            out.name("last_updated").value(r.getLastUpdated());
+            out.endObject();
+        }
+    }
+
+    /** Keeps only the parsed timetable of each page; the raw OCR markdown is skipped. */
+    static class OcrResponseAdapter extends TypeAdapter<OcrResponse> {
+        @Override
+        public OcrResponse read(JsonReader in) throws IOException {
+            OcrResponse r = new OcrResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "success": r.success = in.nextBoolean(); break;
+                    case "total_pages": r.totalPages = (int) nextLongOrZero(in); break;
+                    case "processed_page": r.processedPage = (int) nextLongOrZero(in); break;
+                    case "data": r.data = nextObjectOrNull(in); break;
+                    case "results":
+                        r.results = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) r.results.add(readPage(in));
+                        in.endArray();
+                        break;
+                    default: in.skipValue(); // raw_markdown, url
+                }
+            }
+            in.endObject();
+            return r;
+        }
+
+        private OcrResponse.Page readPage(JsonReader in) throws IOException {
+            OcrResponse.Page page = new OcrResponse.Page();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "page_number": page.pageNumber = (int) nextLongOrZero(in); break;
+                    case "data": page.data = nextObjectOrNull(in); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return page;
+        }
+
+        @Override
+        public void write(JsonWriter out, OcrResponse r) throws IOException {
+            out.beginObject();
+            out.name("success").value(r.success);
+            out.name("total_pages").value(r.totalPages);
+            out.name("processed_page").value(r.processedPage);
+            out.name("data");
+            writeObject(out, r.data);
+            if (r.results != null) {
+                out.name("results").beginArray();
+                for (OcrResponse.Page page : r.results) {
+                    out.beginObject();
+                    out.name("page_number").value(page.pageNumber);
+                    out.name("data");
+                    writeObject(out, page.data);
+                    out.endObject();
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        private void writeObject(JsonWriter out, JsonObject value) throws IOException {
+            if (value == null) out.nullValue();
+            else JSON_OBJECT.write(out, value);
+        }
+    }
+
+    /** Reads the crowd summary and skips the per-frame series. */
+    static class CrowdResponseAdapter extends TypeAdapter<CrowdResponse> {
+        @Override
+        public CrowdResponse read(JsonReader in) throws IOException {
+            CrowdResponse r = new CrowdResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if ("success".equals(name)) {
+                    r.success = in.nextBoolean();
+                } else if ("data".equals(name) && in.peek() == JsonToken.BEGIN_OBJECT) {
+                    readData(in, r);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return r;
+        }
+
+        private void readData(JsonReader in, CrowdResponse r) throws IOException {
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "overall_assessment": r.overallAssessment = nextStringOrNull(in); break;
+                    case "peak_crowd_time": r.peakCrowdTime = nextDoubleOrZero(in); break;
+                    case "crowd_statistics":
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            switch (in.nextName()) {
+                                case "average_count": r.averageCount = nextDoubleOrZero(in); break;
+                                case "max_count": r.maxCount = (int) nextLongOrZero(in); break;
+                                case "min_count": r.minCount = (int) nextLongOrZero(in); break;
+                                default: in.skipValue();
+                            }
+                        }
+                        in.endObject();
+                        break;
+                    default: in.skipValue(); // frame_data, video_info, level_distribution
+                }
+            }
+            in.endObject();
+        }
+
+        @Override
+        public void write(JsonWriter out, CrowdResponse r) throws IOException {
+            out.beginObject();
+            out.name("success").value(r.success);
+            out.name("data").beginObject();
+            out.name("overall_assessment").value(r.overallAssessment);
+            out.name("peak_crowd_time").value(r.peakCrowdTime);
+            out.name("crowd_statistics").beginObject();
+            out.name("average_count").value(r.averageCount);
+            out.name("max_count").value(r.maxCount);
+            out.name("min_count").value(r.minCount);
+            out.endObject();
+            out.endObject();
+            out.endObject();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.temp.network;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Tracks one upload's position over time and derives throughput and ETA from it.
+ * The instantaneous rate is an exponentially weighted moving average over short samples, so it
+ * follows the link without jumping around on every socket write; the average rate covers
+ * everything sent in this attempt.
+ */
+public class UploadProgress {
+
+    private static final long SAMPLE_NANOS = 250_000_000L;   // fold bytes into the EWMA every 250 ms
+    private static final double EWMA_WEIGHT = 0.3;            // weight of the newest sample
+
+    public interface Listener {
+        /** Throttled to about one call per sample interval; runs on the uploading thread. */
+        void onProgress(@NonNull Snapshot snapshot);
+    }
+
+    /** Point-in-time view of an upload. */
+    public static class Snapshot {
+        public final long sentBytes;
+        public final long totalBytes;
+        /** Smoothed recent rate, bytes/second. */
+        public final long bytesPerSecond;
+        /** Mean rate since this attempt started, bytes/second. */
+        public final long averageBytesPerSecond;
+        /** Estimated time left at the recent rate; -1 while unknown. */
+        public final long etaMillis;
+
+        Snapshot(long sentBytes, long totalBytes, long bytesPerSecond, long averageBytesPerSecond, long etaMillis) {
+            this.sentBytes = sentBytes;
+            this.totalBytes = totalBytes;
+            this.bytesPerSecond = bytesPerSecond;
+            this.averageBytesPerSecond = averageBytesPerSecond;
+            this.etaMillis = etaMillis;
+        }
+    }
+
+    private final long totalBytes;
+    private final Listener listener;
+    private final long startNanos = System.nanoTime();
+
+    private long startPosition = -1; // where this attempt started (non-zero when resuming)
+    private long position;
+    private long sampleNanos = startNanos;
+    private long samplePosition;
+    private double ewmaBytesPerSecond = -1;
+
+    public UploadProgress(long totalBytes, @NonNull Listener listener) {
+        this.totalBytes = totalBytes;
+        this.listener = listener;
+    }
+
+    /**
+     * Moves the position, e.g. {@code chunkOffset + bytesWrittenSoFar}. It may move back when a
+     * chunk is re-sent; the rate only counts forward progress.
+     */
+    public void update(long newPosition) {
+        Snapshot snapshot = null;
+        synchronized (this) {
+            if (startPosition < 0) {
+                startPosition = newPosition;
+                samplePosition = newPosition;
+            }
+            position = newPosition;
+            long now = System.nanoTime();
+            if (now - sampleNanos >= SAMPLE_NANOS || (totalBytes > 0 && position >= totalBytes)) {
+                double seconds = (now - sampleNanos) / 1e9;
+                double rate = seconds > 0 ? Math.max(0, position - samplePosition) / seconds : 0;
+                ewmaBytesPerSecond = ewmaBytesPerSecond < 0 ? rate
+                        : EWMA_WEIGHT * rate + (1 - EWMA_WEIGHT) * ewmaBytesPerSecond;
+                sampleNanos = now;
+                samplePosition = position;
+                snapshot = snapshotLocked(now);
+            }
+        }
+        if (snapshot != null) listener.onProgress(snapshot);
+    }
+
+    public synchronized Snapshot snapshot() {
+        return snapshotLocked(System.nanoTime());
+    }
+
+    /** Bytes moved forward in this attempt. */
+    public synchronized long sentThisAttempt() {
+        return startPosition < 0 ? 0 : Math.max(0, position - startPosition);
+    }
+
+    public long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private Snapshot snapshotLocked(long now) {
+        double elapsed = (now - startNanos) / 1e9;
+        long sent = startPosition < 0 ? 0 : Math.max(0, position - startPosition);
+        long average = elapsed > 0 ? (long) (sent / elapsed) : 0;
+        long rate = (long) Math.max(0, ewmaBytesPerSecond);
+        long eta = rate > 0 && totalBytes > 0 ? Math.max(0, totalBytes - position) * 1000 / rate : -1;
+        return new Snapshot(position, totalBytes, rate, average, eta);
+    }
+}
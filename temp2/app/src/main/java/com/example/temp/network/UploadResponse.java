@@ -1,8 +1,11 @@
 package com.example.temp.network;
 
+import com.example.temp.model.NotesModel;
+
 public class UploadResponse {
     public boolean success;
     public String message;
+    public NotesModel note;
 
     public boolean isSuccess() { return success; }
     public String getMessage() { return message; }
@@ -0,0 +1,16 @@
+package com.example.temp.network;
+
+import com.google.gson.annotations.SerializedName;
+
+/** State of a resumable upload session under {@code /notes/uploads}. */
+public class UploadSessionResponse {
+    public boolean success;
+    @SerializedName("upload_id")
+    public String uploadId;
+    @SerializedName("chunk_size")
+    public int chunkSize;
+    @SerializedName("total_size")
+    public long totalSize;
+    /** Bytes the server holds; the next chunk starts here. */
+    public long received;
+}
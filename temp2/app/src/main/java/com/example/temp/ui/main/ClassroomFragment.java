@@ -3,9 +3,12 @@ package com.example.temp.ui.main;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.inputmethod.EditorInfo;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
@@ -13,32 +16,45 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.example.temp.R;
+import com.example.temp.adapter.RoomSuggestionAdapter;
+import com.example.temp.data.FloorPlanLoader;
+import com.example.temp.data.RoomIndex;
 import com.example.temp.network.ApiClient;
+import com.example.temp.network.RequestScheduler;
+import com.example.temp.network.SingleFlight;
 import com.example.temp.utils.CacheHelper;
 
 import android.widget.Button;
 import android.widget.EditText;
-import android.widget.ImageView;
 import android.widget.Spinner;
 import android.widget.ArrayAdapter;
+import android.widget.AutoCompleteTextView;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 
+import java.io.File;
 import java.io.IOException;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class ClassroomFragment extends Fragment {
 
     private Spinner typeSpinner;
     private EditText numberInput;
     private Button searchButton;
-    private ImageView classroomImage;
+    private TiledMapView classroomImage;
     private TextView statusTextView;
+    private AutoCompleteTextView roomSearch;
     private static final String CACHE_KEY = "navigation_cache";
+    // Fuzzy room lookups walk the whole trie; keep them off the main thread
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private SingleFlight.Subscription imageRequest;
+    private String imageRequestUrl;
+    private Bitmap shownBitmap; // handed out by FloorPlanLoader, released when replaced
 
     @Nullable
     @Override
@@ -55,6 +71,7 @@ public class ClassroomFragment extends Fragment {
         searchButton = view.findViewById(R.id.searchButton);
         classroomImage = view.findViewById(R.id.classroomImage);
         statusTextView = view.findViewById(R.id.statusTextView);
+        roomSearch = view.findViewById(R.id.roomSearch);
 
         // setup spinner values
         String[] types = new String[]{"CC", "CL", "CR", "TR"};
@@ -93,33 +110,115 @@ public class ClassroomFragment extends Fragment {
 
 
         searchButton.setOnClickListener(v -> searchClassroom());
+        // Picks up rooms added on the server since the index was last stored
+        RoomIndex.get(requireContext()).refresh();
 
-        // If navigated here from Home with a query, prefill and search
+        RoomSuggestionAdapter suggestions = new RoomSuggestionAdapter(requireContext());
+        roomSearch.setAdapter(suggestions);
+        roomSearch.setOnItemClickListener((parent, v, position, id) -> showRoom(suggestions.getItem(position)));
+        roomSearch.setOnEditorActionListener((v, actionId, event) -> {
+            if (actionId != EditorInfo.IME_ACTION_SEARCH) return false;
+            String query = roomSearch.getText().toString();
+            findBestRoom(query, room -> {
+                if (room == null) {
+                    statusTextView.setText("No room matches \"" + query + "\"");
+                } else {
+                    roomSearch.dismissDropDown();
+                    showRoom(room);
+                }
+            });
+            return true;
+        });
+
+        // If navigated here from Home with a query, show the best matching room
         Bundle args = getArguments();
         if (args != null) {
             String q = args.getString("search_query", "").trim();
             if (!q.isEmpty()) {
-                // Try to parse a room type prefix if provided (e.g., cc101 or cr301)
-                String letters = q.replaceAll("[^A-Za-z]", "");
-                String digits = q.replaceAll("[^0-9]", "");
-                if (!letters.isEmpty()) {
-                    // set spinner to the letters if they match available types
-                    for (int i = 0; i < typeSpinner.getCount(); i++) {
-                        String item = (String) typeSpinner.getItemAtPosition(i);
-                        if (item.equalsIgnoreCase(letters)) {
-                            typeSpinner.setSelection(i);
-                            break;
-                        }
+                findBestRoom(q, room -> {
+                    if (room != null) {
+                        showRoom(room);
+                    } else if (!RoomIndex.get(requireContext()).hasServerData()) {
+                        // Nothing indexed yet (first run, offline): read "cr301" as type + number
+                        searchParsed(q);
+                    } else {
+                        roomSearch.setText(q);
                     }
-                }
-                if (!digits.isEmpty()) {
-                    numberInput.setText(digits);
-                    // trigger search after fields are filled
-                    searchClassroom();
+                });
+            }
+        }
+    }
+
+    /**
+     * Looks up the best match for {@code query} off the main thread, then hands it (or null) to
+     * {@code then} on the main thread, if the view is still there.
+     */
+    private void findBestRoom(@NonNull String query, @NonNull Consumer<RoomIndex.Room> then) {
+        RoomIndex index = RoomIndex.get(requireContext());
+        SEARCH_EXECUTOR.execute(() -> {
+            List<RoomIndex.Room> best = index.search(query, 1);
+            RoomIndex.Room room = best.isEmpty() ? null : best.get(0);
+            mainHandler.post(() -> {
+                if (getView() != null) then.accept(room);
+            });
+        });
+    }
+
+    /** Splits a query like "cr301" into the type and number fields and searches for it. */
+    private void searchParsed(@NonNull String q) {
+        String letters = q.replaceAll("[^A-Za-z]", "");
+        String digits = q.replaceAll("[^0-9]", "");
+        if (!letters.isEmpty()) {
+            for (int i = 0; i < typeSpinner.getCount(); i++) {
+                if (letters.equalsIgnoreCase((String) typeSpinner.getItemAtPosition(i))) {
+                    typeSpinner.setSelection(i);
+                    break;
                 }
             }
         }
+        if (digits.isEmpty()) {
+            roomSearch.setText(q);
+            return;
+        }
+        numberInput.setText(digits);
+        searchClassroom();
+    }
+
+    /** Fills the type and number fields from a finder suggestion and looks the room up. */
+    private void showRoom(@Nullable RoomIndex.Room room) {
+        if (room == null) return;
+        for (int i = 0; i < typeSpinner.getCount(); i++) {
+            if (room.type.equalsIgnoreCase((String) typeSpinner.getItemAtPosition(i))) {
+                typeSpinner.setSelection(i);
+                break;
+            }
+        }
+        numberInput.setText(room.number.toUpperCase());
+        searchClassroom();
+    }
+    @Override
+    public void onDestroyView() {
+        cancelImageRequest();
+        showBitmap(null, null);
+        super.onDestroyView();
+    }
+
+    private void cancelImageRequest() {
+        if (imageRequest != null) {
+            imageRequest.cancel();
+            imageRequest = null;
+            imageRequestUrl = null;
+        }
     }
+
+    /** Shows {@code bitmap} as the map preview; {@code source} adds detail tiles when zoomed in. */
+    private void showBitmap(@Nullable Bitmap bitmap, @Nullable TiledMapView.RegionSource source) {
+        if (bitmap == shownBitmap) return;
+        classroomImage.setImage(bitmap, source);
+        FloorPlanLoader.get(requireContext()).release(shownBitmap);
+        shownBitmap = bitmap;
+    }
+
     private void searchClassroom() {
         String type = typeSpinner.getSelectedItem().toString().toLowerCase();
         String number = numberInput.getText().toString().trim();
@@ -128,47 +227,87 @@ public class ClassroomFragment extends Fragment {
             return;
         }
 
-        // Construct drawable name (e.g. cc101 -> cc101)
+        // Room key, also the drawable name of bundled plans (e.g. cc101)
         String resourceName = (type + number).toLowerCase();
 
-        int resId = requireContext().getResources().getIdentifier(resourceName, "drawable", requireContext().getPackageName());
+        FloorPlanLoader loader = FloorPlanLoader.get(requireContext());
+        int width = classroomImage.getWidth();
+        int height = classroomImage.getHeight();
+
+        RoomIndex.Room room = RoomIndex.get(requireContext()).find(type, number);
+        if (room == null && RoomIndex.get(requireContext()).hasServerData()) {
+            cancelImageRequest();
+            showBitmap(null, null);
+            statusTextView.setText("No image found for: " + resourceName);
+            return;
+        }
+
+        int resId = room != null ? room.drawableRes : 0;
         if (resId != 0) {
-            classroomImage.setImageResource(resId);
-            statusTextView.setText("Found: " + resourceName);
-        } else {
-            // Attempt to fetch from backend: /floor/image/{floor_number}/{filename}
-            classroomImage.setImageDrawable(null);
-            // Derive floor number from room number's leading digit
-            char firstChar = number.charAt(0);
-            String floor = String.valueOf(firstChar);
-            String filename = resourceName + ".png";
-            String url = ApiClient.getNavigationEndpoint() + "/image/" + floor + "/" + filename;
-            statusTextView.setText("Fetching from server...");
-            // download image asynchronously
-            OkHttpClient client = ApiClient.getClient();
-            Request request = new Request.Builder().url(url).build();
-            client.newCall(request).enqueue(new okhttp3.Callback() {
+            cancelImageRequest();
+            String key = "res:" + resId;
+            imageRequestUrl = key;
+            imageRequest = loader.loadResource(resId, width, height, new FloorPlanLoader.Callback() {
                 @Override
-                public void onFailure(@NonNull okhttp3.Call call, @NonNull IOException e) {
-                    requireActivity().runOnUiThread(() -> statusTextView.setText("No image found for: " + resourceName));
+                public void onLoaded(@Nullable Bitmap bmp, boolean fromNetwork) {
+                    if (!key.equals(imageRequestUrl)) {
+                        loader.release(bmp);
+                        return;
+                    }
+                    imageRequest = null;
+                    imageRequestUrl = null;
+                    showBitmap(bmp, TiledMapView.fromResource(getResources(), resId));
+                    statusTextView.setText("Found: " + resourceName);
                 }
 
                 @Override
-                public void onResponse(@NonNull okhttp3.Call call, @NonNull Response response) throws IOException {
-                    if (!response.isSuccessful() || response.body() == null) {
-                        requireActivity().runOnUiThread(() -> statusTextView.setText("No image found for: " + resourceName));
+                public void onFailure(@NonNull IOException e) {
+                    // Bundled drawables don't fail to load
+                }
+            });
+        } else {
+            // Fetch from backend: /floor/image/{floor_number}/{filename}
+            String url;
+            if (room != null && room.imageUrl != null) {
+                url = room.imageUrl;
+            } else {
+                // Floor metadata never loaded yet (first run, offline): guess from the leading digit
+                String floor = String.valueOf(number.charAt(0));
+                url = ApiClient.getNavigationEndpoint() + "/image/" + floor + "/" + resourceName + ".png";
+            }
+            // Tapping search again for the same room just keeps waiting on the same download
+            if (imageRequest != null && url.equals(imageRequestUrl)) return;
+            // A different room supersedes whatever the previous search was still fetching
+            cancelImageRequest();
+            showBitmap(null, null);
+            statusTextView.setText("Fetching from server...");
+            // Memory, then disk cache, then one shared download per URL
+            imageRequestUrl = url;
+            imageRequest = loader.load(url, width, height, RequestScheduler.Priority.USER_BLOCKING,
+                    new FloorPlanLoader.Callback() {
+                @Override
+                public void onLoaded(@Nullable Bitmap bmp, boolean fromNetwork) {
+                    if (!url.equals(imageRequestUrl)) { // superseded meanwhile
+                        loader.release(bmp);
                         return;
                     }
-                    byte[] bytes = response.body().bytes();
-                    final Bitmap bmp = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-                    requireActivity().runOnUiThread(() -> {
-                        if (bmp != null) {
-                            classroomImage.setImageBitmap(bmp);
-                            statusTextView.setText("Loaded from server: " + resourceName);
-                        } else {
-                            statusTextView.setText("No image found for: " + resourceName);
-                        }
-                    });
+                    imageRequest = null;
+                    imageRequestUrl = null;
+                    if (bmp != null) {
+                        File file = loader.diskFile(url);
+                        showBitmap(bmp, file.exists() ? TiledMapView.fromFile(file) : null);
+                        statusTextView.setText((fromNetwork ? "Loaded from server: " : "Found: ") + resourceName);
+                    } else {
+                        statusTextView.setText("No image found for: " + resourceName);
+                    }
+                }
+
+                @Override
+                public void onFailure(@NonNull IOException e) {
+                    if (!url.equals(imageRequestUrl)) return;
+                    imageRequest = null;
+                    imageRequestUrl = null;
+                    statusTextView.setText("No image found for: " + resourceName);
                 }
             });
         }
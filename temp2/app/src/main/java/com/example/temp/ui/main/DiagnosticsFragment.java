@@ -0,0 +1,72 @@
+package com.example.temp.ui.main;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.FileProvider;
+import androidx.fragment.app.Fragment;
+
+import com.example.temp.R;
+import com.example.temp.network.NetworkMetrics;
+import com.example.temp.network.RequestScheduler;
+
+import java.io.File;
+
+/**
+ * Shows the per-endpoint network metrics collected by {@link NetworkMetrics} and lets them be
+ * exported as a text file.
+ */
+public class DiagnosticsFragment extends Fragment {
+
+    private TextView metricsText;
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
+                             @Nullable Bundle savedInstanceState) {
+        return inflater.inflate(R.layout.fragment_diagnostics, container, false);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        metricsText = view.findViewById(R.id.metricsText);
+
+        view.findViewById(R.id.btnRefreshMetrics).setOnClickListener(v -> showReport());
+        view.findViewById(R.id.btnExportMetrics).setOnClickListener(v -> exportReport());
+        view.findViewById(R.id.btnResetMetrics).setOnClickListener(v -> {
+            NetworkMetrics.reset();
+            showReport();
+        });
+
+        showReport();
+    }
+
+    private void showReport() {
+        metricsText.setText("Scheduler: " + RequestScheduler.summary() + "\n\n" + NetworkMetrics.report());
+    }
+
+    private void exportReport() {
+        try {
+            File file = NetworkMetrics.dumpTo(new File(requireContext().getCacheDir(), "diagnostics/network_metrics.txt"));
+            Uri uri = FileProvider.getUriForFile(requireContext(),
+                    requireContext().getPackageName() + ".fileprovider", file);
+
+            Intent share = new Intent(Intent.ACTION_SEND);
+            share.setType("text/plain");
+            share.putExtra(Intent.EXTRA_STREAM, uri);
+            share.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            startActivity(Intent.createChooser(share, "Export network metrics"));
+        } catch (Exception e) {
+            Toast.makeText(requireContext(), "Export failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+    }
+}
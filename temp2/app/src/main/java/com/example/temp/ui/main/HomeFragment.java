@@ -9,6 +9,7 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.navigation.Navigation;
 
 import com.example.temp.R;
 
@@ -26,5 +27,11 @@ public class HomeFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
         TextView titleTextView = view.findViewById(R.id.title_text_view);
         titleTextView.setText(R.string.home_tab);
+
+        // Hidden entry point for the network diagnostics screen
+        titleTextView.setOnLongClickListener(v -> {
+            Navigation.findNavController(v).navigate(R.id.diagnosticsFragment);
+            return true;
+        });
     }
 }
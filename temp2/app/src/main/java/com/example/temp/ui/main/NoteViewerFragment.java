@@ -0,0 +1,239 @@
+package com.example.temp.ui.main;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.temp.R;
+import com.example.temp.adapter.PdfPageAdapter;
+import com.example.temp.data.NoteFileCache;
+import com.example.temp.model.NotesModel;
+import com.example.temp.network.RequestScheduler;
+import com.example.temp.network.SingleFlight;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * In-app PDF viewer for a note. The file comes from {@link NoteFileCache} (downloaded on the
+ * first open with progress shown, resumed if that was interrupted, straight from disk after
+ * that, offline too) and its pages are rendered on the device by {@link PdfPageAdapter}.
+ * While a PDF downloads, its first page is shown from a server-rendered JPEG, which is tens of
+ * KB and arrives long before the file does.
+ */
+public class NoteViewerFragment extends Fragment {
+
+    private static final String TAG = "NoteViewerFragment";
+
+    // Parsing a PDF's page tree touches the disk; keep it off the main thread
+    private static final ExecutorService OPENER = Executors.newSingleThreadExecutor();
+    // The server renders previews at most this wide
+    private static final int MAX_PREVIEW_WIDTH = 1440;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private RecyclerView pages;
+    private View loading;
+    private View progress;
+    private TextView status;
+    private ImageView preview;
+    @Nullable private PdfPageAdapter adapter;
+    @Nullable private SingleFlight.Subscription download;
+    @Nullable private SingleFlight.Subscription previewLoad;
+    private boolean viewAlive;
+
+    /** Arguments for navigating here. */
+    @NonNull
+    public static Bundle args(@NonNull NotesModel note) {
+        Bundle args = new Bundle();
+        args.putString("note_id", note.getId());
+        args.putString("note_name", note.getName());
+        args.putString("note_path", note.getFilePath());
+        args.putString("note_upload_date", note.getUploadDate());
+        args.putLong("note_size", note.getFileSize());
+        return args;
+    }
+
+    private static NotesModel noteFrom(Bundle args) {
+        return new NotesModel(args.getString("note_id"), args.getString("note_name"), null, null, null,
+                args.getString("note_path"), args.getString("note_upload_date"), args.getLong("note_size"),
+                null, null);
+    }
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
+                             @Nullable Bundle savedInstanceState) {
+        return inflater.inflate(R.layout.fragment_note_viewer, container, false);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        viewAlive = true;
+        pages = view.findViewById(R.id.notePages);
+        loading = view.findViewById(R.id.noteLoading);
+        progress = view.findViewById(R.id.noteProgress);
+        status = view.findViewById(R.id.noteStatus);
+        preview = view.findViewById(R.id.notePreview);
+        pages.setLayoutManager(new LinearLayoutManager(requireContext()));
+
+        NotesModel note = noteFrom(requireArguments());
+        ((TextView) view.findViewById(R.id.noteTitle)).setText(note.getName());
+
+        NoteFileCache cache = NoteFileCache.get(requireContext());
+        File cached = cache.cached(note);
+        if (cached != null) {
+            open(cached);
+            return;
+        }
+        status.setText("Downloading…");
+        // Asked for before the file, so it's first in line among the USER_BLOCKING calls
+        if (isPdf(note)) loadPreview(note);
+        download = cache.download(note, (bytes, total) -> mainHandler.post(() -> {
+            if (viewAlive) status.setText(progressText(bytes, total));
+        }), new SingleFlight.Listener<File>() {
+            @Override
+            public void onResult(File file) {
+                mainHandler.post(() -> {
+                    if (viewAlive) open(file);
+                });
+            }
+
+            @Override
+            public void onFailure(@NonNull IOException e) {
+                Log.w(TAG, "Download failed", e);
+                mainHandler.post(() -> showError("Couldn't download this note. Check your connection."));
+            }
+        });
+    }
+
+    @Override
+    public void onDestroyView() {
+        viewAlive = false;
+        if (download != null) download.cancel();
+        download = null;
+        if (previewLoad != null) previewLoad.cancel();
+        previewLoad = null;
+        if (adapter != null) adapter.close();
+        adapter = null;
+        super.onDestroyView();
+    }
+
+    private void open(File file) {
+        status.setText("Opening…");
+        OPENER.execute(() -> {
+            PdfPageAdapter opened;
+            try {
+                ParcelFileDescriptor fd = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+                try {
+                    opened = new PdfPageAdapter(fd);
+                } catch (IOException | RuntimeException e) {
+                    fd.close();
+                    throw e;
+                }
+            } catch (IOException | RuntimeException e) {
+                // A damaged copy would fail the same way every time; fetch it again next time
+                Log.w(TAG, "Cannot open " + file, e);
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+                mainHandler.post(() -> showError("Couldn't open this note."));
+                return;
+            }
+            mainHandler.post(() -> {
+                if (!viewAlive) {
+                    opened.close();
+                    return;
+                }
+                adapter = opened;
+                pages.setAdapter(opened);
+                loading.setVisibility(View.GONE);
+                if (previewLoad != null) previewLoad.cancel();
+                previewLoad = null;
+                preview.setVisibility(View.GONE);
+                preview.setImageDrawable(null);
+            });
+        });
+    }
+
+    private void loadPreview(NotesModel note) {
+        int width = Math.min(getResources().getDisplayMetrics().widthPixels, MAX_PREVIEW_WIDTH);
+        Request request = new Request.Builder()
+                .url(NoteFileCache.previewUrl(note.getId(), 1, width))
+                .build();
+        previewLoad = SingleFlight.enqueue(request, RequestScheduler.Priority.USER_BLOCKING,
+                NoteViewerFragment::decodePreview, new SingleFlight.Listener<Bitmap>() {
+                    @Override
+                    public void onResult(Bitmap bitmap) {
+                        mainHandler.post(() -> showPreview(bitmap));
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull IOException e) {
+                        // The download carries on; the page just shows once it's done
+                        Log.w(TAG, "Preview failed", e);
+                    }
+                });
+    }
+
+    private static Bitmap decodePreview(@NonNull Response response) throws IOException {
+        try (Response r = response) {
+            if (!r.isSuccessful() || r.body() == null) throw new IOException("HTTP " + r.code());
+            Bitmap bitmap = BitmapFactory.decodeStream(r.body().byteStream());
+            if (bitmap == null) throw new IOException("Undecodable preview");
+            return bitmap;
+        }
+    }
+
+    private void showPreview(Bitmap bitmap) {
+        // Too late: the view is gone or the real pages are already up
+        if (!viewAlive || adapter != null) return;
+        preview.setImageBitmap(bitmap);
+        preview.setVisibility(View.VISIBLE);
+        // Progress moves to the bottom, out of the page's way
+        FrameLayout.LayoutParams lp = (FrameLayout.LayoutParams) loading.getLayoutParams();
+        lp.gravity = Gravity.BOTTOM | Gravity.CENTER_HORIZONTAL;
+        loading.setLayoutParams(lp);
+    }
+
+    private static boolean isPdf(NotesModel note) {
+        String path = note.getFilePath() != null ? note.getFilePath() : note.getName();
+        return path != null && path.toLowerCase(Locale.US).endsWith(".pdf");
+    }
+
+    private static String progressText(long bytes, long total) {
+        if (total <= 0) return String.format(Locale.US, "Downloading… %.1f MB", bytes / 1048576.0);
+        return String.format(Locale.US, "Downloading… %.1f of %.1f MB (%d%%)",
+                bytes / 1048576.0, total / 1048576.0, (int) (bytes * 100 / total));
+    }
+
+    private void showError(String message) {
+        if (!viewAlive) return;
+        progress.setVisibility(View.GONE);
+        status.setText(message);
+        loading.setVisibility(View.VISIBLE);
+    }
+}
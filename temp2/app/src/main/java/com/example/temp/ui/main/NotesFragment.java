@@ -1,11 +1,7 @@
 package com.example.temp.ui.main;
 
-import android.app.Activity;
-import android.content.Intent;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
-import android.provider.OpenableColumns;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.LayoutInflater;
@@ -26,42 +22,37 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.temp.R;
 import com.example.temp.adapter.NotesAdapter;
+import com.example.temp.data.NotesPager;
+import com.example.temp.data.NotesRepository;
+import com.example.temp.data.UploadQueue;
 import com.example.temp.model.NotesModel;
-import com.example.temp.network.RetrofitClient;
-import com.example.temp.network.TempusApi;
-import com.example.temp.network.UploadResponse;
+import com.example.temp.network.ContentUriRequestBody;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import okhttp3.MediaType;
-import okhttp3.MultipartBody;
-import okhttp3.RequestBody;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-
 public class NotesFragment extends Fragment {
 
+    private static final long SEARCH_DEBOUNCE_MS = 150;
+
     private RecyclerView recycler;
     private NotesAdapter adapter;
     private ProgressBar progress;
     private EditText search;
     private View fabUpload;
 
-    private Uri selectedPdfUri = null;
+    private final List<Uri> selectedPdfUris = new ArrayList<>();
     private TextView fileNameDisplay; // reference to update file name in dialog
 
-    private final String API_URL = "https://tempus-api.neurotechh.xyz/notes/";
+    private TextView emptyState;
+    private NotesRepository repository;
+    private NotesPager pager;
+    private boolean observingCatalog;
+    private boolean pageShown;       // the listing has delivered, replacing the stored catalog
+    private boolean browsingCatalog; // the listing failed, so the stored catalog is shown instead
+    private int doneUploads = -1;
 
     @Nullable
     @Override
@@ -72,6 +63,7 @@ public class NotesFragment extends Fragment {
         progress = view.findViewById(R.id.progressNotes);
         search = view.findViewById(R.id.searchNotes);
         fabUpload = view.findViewById(R.id.fabUpload);
+        emptyState = view.findViewById(R.id.emptyNotes);
 
         recycler.setLayoutManager(new LinearLayoutManager(requireContext()));
         adapter = new NotesAdapter(requireActivity());
@@ -79,59 +71,128 @@ public class NotesFragment extends Fragment {
 
         fabUpload.setOnClickListener(v -> showUploadDialog());
 
-        loadNotes();
+        // Browsing pages through the server listing. The stored catalog shows straight away
+        // while page 0 loads (and for good if the listing can't be reached); search runs over it
+        repository = NotesRepository.get(requireContext());
+        pager = new NotesPager(pagerListener);
+        progress.setVisibility(View.VISIBLE);
+        observeCatalog();
+        pager.loadAround(0, 0);
+        recycler.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                // Positions only mean pages once the listing is what's shown
+                if (!pageShown || browsingCatalog || adapter.isSearching()) return;
+                LinearLayoutManager lm = (LinearLayoutManager) rv.getLayoutManager();
+                if (lm == null || lm.findFirstVisibleItemPosition() == RecyclerView.NO_POSITION) return;
+                pager.loadAround(lm.findFirstVisibleItemPosition(), lm.findLastVisibleItemPosition());
+            }
+        });
+        UploadQueue.get(requireContext()).observe(uploadsListener);
         setupSearch();
 
         return view;
     }
 
-    private void loadNotes() {
-        progress.setVisibility(View.VISIBLE);
+    @Override
+    public void onDestroyView() {
+        search.removeCallbacks(runSearch);
+        pager.release();
+        UploadQueue.get(requireContext()).removeListener(uploadsListener);
+        if (observingCatalog) repository.removeListener(notesListener);
+        observingCatalog = false;
+        pageShown = false;
+        browsingCatalog = false;
+        doneUploads = -1;
+        super.onDestroyView();
+    }
+
+    /** Starts delivering the full catalog (stored copy first, then revalidated). */
+    private void observeCatalog() {
+        if (observingCatalog) return;
+        observingCatalog = true;
+        repository.observe(notesListener);
+    }
+
+    private final NotesPager.Listener pagerListener = new NotesPager.Listener() {
+        @Override
+        public void onItems(@NonNull List<NotesModel> items) {
+            if (browsingCatalog) return;
+            pageShown = true;
+            adapter.setBrowseList(items);
+            progress.setVisibility(View.GONE);
+            emptyState.setVisibility(items.isEmpty() ? View.VISIBLE : View.GONE);
+            emptyState.setText("No notes uploaded yet");
+        }
+
+        @Override
+        public void onLoadFailed(@NonNull IOException e, boolean hasData) {
+            if (hasData) {
+                Toast.makeText(getContext(), "Couldn't load more notes", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            // Listing unreachable: keep the stored catalog that's already up
+            browsingCatalog = true;
+        }
+    };
+
+    private final NotesRepository.Listener notesListener = new NotesRepository.Listener() {
+        @Override
+        public void onNotes(@NonNull List<NotesModel> notes, boolean fresh) {
+            adapter.setData(notes);
+            if (!showingCatalog()) return;
+            adapter.setBrowseList(notes);
+            // An empty stored copy says nothing yet; keep the spinner for the listing
+            if (!notes.isEmpty() || fresh || browsingCatalog) progress.setVisibility(View.GONE);
+            emptyState.setVisibility(notes.isEmpty() && fresh ? View.VISIBLE : View.GONE);
+            emptyState.setText("No notes uploaded yet");
+        }
 
-        new Thread(() -> {
-            try {
-                URL url = new URL(API_URL);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.connect();
-
-                InputStream is = conn.getInputStream();
-                String result = new java.util.Scanner(is).useDelimiter("\\A").next();
-
-                JSONObject obj = new JSONObject(result);
-                JSONArray arr = obj.getJSONArray("notes");
-
-                List<NotesModel> list = new ArrayList<>();
-                for (int i = 0; i < arr.length(); i++) {
-                    JSONObject o = arr.getJSONObject(i);
-                    list.add(new NotesModel(
-                            o.getString("id"),
-                            o.getString("name"),
-                            o.getString("subject"),
-                            o.optString("year", ""),
-                            o.getString("uploaded_by"),
-                            o.getString("file_path")
-                    ));
-                }
-
-                requireActivity().runOnUiThread(() -> {
-                    adapter.setData(list);
-                    progress.setVisibility(View.GONE);
-                });
-
-            } catch (Exception e) {
-                requireActivity().runOnUiThread(() -> progress.setVisibility(View.GONE));
+        @Override
+        public void onRefreshFailed(@NonNull Exception e, boolean hasData) {
+            if (!showingCatalog()) return;
+            progress.setVisibility(View.GONE);
+            if (hasData) {
+                // Keep showing the stored catalog
+                Toast.makeText(getContext(), "Offline – showing saved notes", Toast.LENGTH_SHORT).show();
+            } else {
+                emptyState.setText("Couldn't load notes. Check your connection.");
+                emptyState.setVisibility(View.VISIBLE);
             }
-        }).start();
+        }
+    };
+
+    /** Whether the stored catalog is what's on screen (before page 0, or instead of the listing). */
+    private boolean showingCatalog() {
+        return browsingCatalog || !pageShown;
     }
 
+    // New notes land at the top of the listing, so start paging over once one is uploaded
+    private final UploadQueue.Listener uploadsListener = items -> {
+        int done = 0;
+        for (UploadQueue.Item item : items) if (item.state == UploadQueue.State.DONE) done++;
+        if (doneUploads >= 0 && done > doneUploads && !browsingCatalog) pager.refresh();
+        doneUploads = done;
+    };
+
     private void setupSearch() {
         search.addTextChangedListener(new TextWatcher() {
             @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
-            @Override public void onTextChanged(CharSequence s, int start, int before, int count) { adapter.filter(s.toString()); }
-            @Override public void afterTextChanged(Editable s) {}
+            @Override public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                // The index needs the whole catalog; load it as soon as a search starts
+                if (s.length() > 0) observeCatalog();
+                // Wait for a pause in typing; clearing the box applies straight away
+                search.removeCallbacks(runSearch);
+                search.postDelayed(runSearch, s.length() == 0 ? 0 : SEARCH_DEBOUNCE_MS);
+            }
         });
     }
 
+    private final Runnable runSearch = () -> adapter.filter(search.getText().toString());
+
     // ------------------ Upload Dialog ------------------
 
     private void showUploadDialog() {
@@ -146,14 +207,12 @@ public class NotesFragment extends Fragment {
         fileNameDisplay = sheet.findViewById(R.id.textPickFile);
         View uploadBtn = sheet.findViewById(R.id.buttonUpload);
 
-        fileNameDisplay.setOnClickListener(v -> {
-            Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
-            intent.setType("application/pdf");
-            pickPdfLauncher.launch(intent);
-        });
+        selectedPdfUris.clear();
+        // OPEN_DOCUMENT grants can be persisted, so queued uploads survive a restart
+        fileNameDisplay.setOnClickListener(v -> pickPdfLauncher.launch(new String[]{"application/pdf"}));
 
         uploadBtn.setOnClickListener(v -> {
-            if (selectedPdfUri == null) {
+            if (selectedPdfUris.isEmpty()) {
                 Toast.makeText(getContext(), "Select a PDF first ❗", Toast.LENGTH_SHORT).show();
                 return;
             }
@@ -162,59 +221,24 @@ public class NotesFragment extends Fragment {
         });
     }
 
-    private final ActivityResultLauncher<Intent> pickPdfLauncher =
-            registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
-                if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
-                    selectedPdfUri = result.getData().getData();
-
-                    String name = "PDF Selected ✅";
-                    Cursor c = requireContext().getContentResolver().query(selectedPdfUri, null, null, null, null);
-                    if (c != null && c.moveToFirst()) {
-                        name = c.getString(c.getColumnIndexOrThrow(OpenableColumns.DISPLAY_NAME));
-                        c.close();
-                    }
-                    fileNameDisplay.setText(name + " ✅");
-                }
-            });
+    private final ActivityResultLauncher<String[]> pickPdfLauncher =
+            registerForActivityResult(new ActivityResultContracts.OpenMultipleDocuments(), uris -> {
+                if (uris == null || uris.isEmpty() || fileNameDisplay == null) return;
+                selectedPdfUris.clear();
+                selectedPdfUris.addAll(uris);
 
-    private void uploadPdf(String subject, String year, String uploader) {
-        try {
-            // Copy URI → File
-            Cursor meta = requireContext().getContentResolver().query(selectedPdfUri, null, null, null, null);
-            meta.moveToFirst();
-            String fileName = meta.getString(meta.getColumnIndex(OpenableColumns.DISPLAY_NAME));
-            meta.close();
-
-            File file = new File(requireContext().getCacheDir(), fileName);
-            InputStream in = requireContext().getContentResolver().openInputStream(selectedPdfUri);
-            FileOutputStream out = new FileOutputStream(file);
-            byte[] buffer = new byte[1024]; int len;
-            while ((len = in.read(buffer)) > 0) out.write(buffer, 0, len);
-            in.close(); out.close();
-
-            RequestBody fileBody = RequestBody.create(MediaType.parse("application/pdf"), file);
-            MultipartBody.Part body = MultipartBody.Part.createFormData("file", fileName, fileBody);
-
-            RequestBody sub = RequestBody.create(MultipartBody.FORM, subject);
-            RequestBody yr = RequestBody.create(MultipartBody.FORM, year);
-            RequestBody up = RequestBody.create(MultipartBody.FORM, uploader);
-
-            TempusApi api = RetrofitClient.get().create(TempusApi.class);
-            api.uploadNote(body, sub, yr, up).enqueue(new Callback<UploadResponse>() {
-                @Override
-                public void onResponse(Call<UploadResponse> call, Response<UploadResponse> response) {
-                    Toast.makeText(getContext(), "Uploaded ✅", Toast.LENGTH_SHORT).show();
-                    loadNotes();
-                }
-
-                @Override
-                public void onFailure(Call<UploadResponse> call, Throwable t) {
-                    Toast.makeText(getContext(), "Upload Failed", Toast.LENGTH_SHORT).show();
-                }
+                String name = uris.size() == 1
+                        ? ContentUriRequestBody.displayName(requireContext().getContentResolver(), uris.get(0))
+                        : uris.size() + " PDFs";
+                fileNameDisplay.setText(name + " ✅");
             });
 
-        } catch (Exception e) {
-            Toast.makeText(getContext(), "File Error", Toast.LENGTH_SHORT).show();
-        }
+    private void uploadPdf(String subject, String year, String uploader) {
+        // Handed to the app-wide queue: keeps going if the user leaves this screen, and the
+        // catalog refreshes itself as each upload lands
+        UploadQueue.get(requireContext()).enqueue(new ArrayList<>(selectedPdfUris), subject, year, uploader);
+        Toast.makeText(getContext(), selectedPdfUris.size() == 1 ? "Upload queued ⏳"
+                : selectedPdfUris.size() + " uploads queued ⏳", Toast.LENGTH_SHORT).show();
+        selectedPdfUris.clear();
     }
 }
@@ -0,0 +1,309 @@
+package com.example.temp.ui.main;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pan/zoom viewer for floor maps of any size. A small preview bitmap (fit to the view) is
+ * always drawn; once zoomed in past its resolution, only the tiles on screen are decoded from
+ * the full image with {@link BitmapRegionDecoder}, at the sample size matching the zoom, on a
+ * background pool. Decoded tiles live in an LRU bounded by bytes, so memory stays flat however
+ * big the source image is.
+ *
+ * <p>Pinch to zoom, drag to pan, double-tap to zoom in (or back out when fully zoomed).
+ */
+public class TiledMapView extends View {
+
+    /** Where the full-resolution image comes from. */
+    public interface RegionSource {
+        @NonNull
+        BitmapRegionDecoder open() throws IOException;
+    }
+
+    private static final String TAG = "TiledMapView";
+    private static final int TILE_PX = 512;
+    private static final int TILE_CACHE_BYTES = 12 * 1024 * 1024;
+    private static final float MAX_ZOOM_OVER_NATIVE = 2f;
+    private static final float DOUBLE_TAP_ZOOM = 3f;
+
+    // Decoding is shared by every instance; BitmapRegionDecoder serialises calls internally anyway
+    private static final ExecutorService TILE_POOL = Executors.newFixedThreadPool(2);
+
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+    private final LruCache<String, Bitmap> tiles = new LruCache<String, Bitmap>(TILE_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getAllocationByteCount();
+        }
+    };
+    private final Set<String> pending = new HashSet<>(); // guarded by itself
+
+    @Nullable private Bitmap preview;
+    @Nullable private BitmapRegionDecoder decoder; // touched on the main thread only, except decodeRegion
+    private volatile int generation;               // bumped whenever the image changes
+    private int imageWidth;
+    private int imageHeight;
+
+    // View px per image px, and where the image's top-left corner is on screen
+    private volatile float scale; // also read by tile jobs
+    private float minScale;
+    private float offsetX;
+    private float offsetY;
+
+    private final Rect src = new Rect();
+    private final RectF dst = new RectF();
+
+    public TiledMapView(Context context) {
+        this(context, null);
+    }
+
+    public TiledMapView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                zoomBy(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+        });
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float dx, float dy) {
+                offsetX -= dx;
+                offsetY -= dy;
+                clamp();
+                invalidate();
+                return true;
+            }
+
+            @Override
+            public boolean onDoubleTap(MotionEvent e) {
+                float target = scale > minScale * 1.01f ? minScale : minScale * DOUBLE_TAP_ZOOM;
+                zoomBy(target / scale, e.getX(), e.getY());
+                return true;
+            }
+        });
+    }
+
+    public static RegionSource fromFile(@NonNull File file) {
+        return () -> BitmapRegionDecoder.newInstance(file.getPath(), false);
+    }
+
+    public static RegionSource fromResource(@NonNull Resources resources, int resId) {
+        return () -> {
+            try (InputStream in = resources.openRawResource(resId)) {
+                return BitmapRegionDecoder.newInstance(in, false);
+            }
+        };
+    }
+
+    /**
+     * Shows {@code preview} straight away and, if {@code source} is given, opens it for detail
+     * tiles. Pass null for both to clear. The caller keeps ownership of the preview bitmap.
+     */
+    public void setImage(@Nullable Bitmap preview, @Nullable RegionSource source) {
+        closeDecoder();
+        this.preview = preview;
+        int gen = ++generation;
+        imageWidth = preview != null ? preview.getWidth() : 0;
+        imageHeight = preview != null ? preview.getHeight() : 0;
+        resetZoom();
+        invalidate();
+        if (source == null) return;
+
+        TILE_POOL.execute(() -> {
+            BitmapRegionDecoder opened;
+            try {
+                opened = source.open();
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "No detail tiles for this map", e);
+                return;
+            }
+            post(() -> {
+                if (gen != generation) {
+                    opened.recycle();
+                    return;
+                }
+                decoder = opened;
+                // Zoom and pan were in preview pixels; carry them over to full-size pixels
+                float ratio = imageWidth > 0 ? (float) opened.getWidth() / imageWidth : 1f;
+                imageWidth = opened.getWidth();
+                imageHeight = opened.getHeight();
+                scale /= ratio;
+                updateMinScale();
+                clamp();
+                invalidate();
+            });
+        });
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        resetZoom();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        closeDecoder();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (preview == null) return super.onTouchEvent(event);
+        boolean handled = scaleDetector.onTouchEvent(event);
+        handled |= gestureDetector.onTouchEvent(event);
+        // Don't let a scrolling parent steal the pan
+        getParent().requestDisallowInterceptTouchEvent(scale > minScale * 1.01f);
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        if (preview == null || imageWidth == 0) return;
+
+        dst.set(offsetX, offsetY, offsetX + imageWidth * scale, offsetY + imageHeight * scale);
+        canvas.drawBitmap(preview, null, dst, paint);
+
+        BitmapRegionDecoder d = decoder;
+        if (d == null) return;
+        int sample = sampleFor(scale);
+        // The preview already has at least this much detail
+        if (sample >= (float) imageWidth / preview.getWidth()) return;
+
+        int tileSize = TILE_PX * sample;
+        int left = Math.max(0, (int) ((-offsetX) / scale));
+        int top = Math.max(0, (int) ((-offsetY) / scale));
+        int right = Math.min(imageWidth, (int) Math.ceil((getWidth() - offsetX) / scale));
+        int bottom = Math.min(imageHeight, (int) Math.ceil((getHeight() - offsetY) / scale));
+        for (int row = top / tileSize; row * tileSize < bottom; row++) {
+            for (int col = left / tileSize; col * tileSize < right; col++) {
+                src.set(col * tileSize, row * tileSize,
+                        Math.min(imageWidth, (col + 1) * tileSize), Math.min(imageHeight, (row + 1) * tileSize));
+                String key = generation + ":" + sample + ":" + col + ":" + row;
+                Bitmap tile = tiles.get(key);
+                if (tile == null) {
+                    requestTile(d, key, new Rect(src), sample);
+                    continue;
+                }
+                dst.set(offsetX + src.left * scale, offsetY + src.top * scale,
+                        offsetX + src.right * scale, offsetY + src.bottom * scale);
+                canvas.drawBitmap(tile, null, dst, paint);
+            }
+        }
+    }
+
+    private void requestTile(BitmapRegionDecoder d, String key, Rect region, int sample) {
+        synchronized (pending) {
+            if (!pending.add(key)) return;
+        }
+        int gen = generation;
+        TILE_POOL.execute(() -> {
+            Bitmap tile = null;
+            try {
+                // Skip tiles that scrolled away or belong to a zoom level we've left
+                if (gen == generation && sample == sampleFor(scale) && !d.isRecycled()) {
+                    BitmapFactory.Options options = new BitmapFactory.Options();
+                    options.inSampleSize = sample;
+                    options.inPreferredConfig = Bitmap.Config.RGB_565; // floor plans have no alpha
+                    tile = d.decodeRegion(region, options);
+                }
+            } catch (RuntimeException e) {
+                // Decoder recycled under us while switching images
+            } finally {
+                synchronized (pending) {
+                    pending.remove(key);
+                }
+            }
+            if (tile != null) {
+                tiles.put(key, tile);
+                postInvalidate();
+            }
+        });
+    }
+
+    /** Largest power of two not above the number of image pixels per screen pixel. */
+    private static int sampleFor(float scale) {
+        int sample = 1;
+        while (sample * 2 <= 1f / scale) sample *= 2;
+        return sample;
+    }
+
+    private void zoomBy(float factor, float focusX, float focusY) {
+        float maxScale = Math.max(minScale, MAX_ZOOM_OVER_NATIVE);
+        float newScale = Math.max(minScale, Math.min(maxScale, scale * factor));
+        factor = newScale / scale;
+        // Keep the point under the fingers where it is
+        offsetX = focusX - (focusX - offsetX) * factor;
+        offsetY = focusY - (focusY - offsetY) * factor;
+        scale = newScale;
+        clamp();
+        invalidate();
+    }
+
+    private void resetZoom() {
+        updateMinScale();
+        scale = minScale;
+        clamp();
+    }
+
+    private void updateMinScale() {
+        if (imageWidth == 0 || imageHeight == 0 || getWidth() == 0 || getHeight() == 0) {
+            minScale = 1f;
+            return;
+        }
+        minScale = Math.min((float) getWidth() / imageWidth, (float) getHeight() / imageHeight);
+        if (scale < minScale) scale = minScale;
+    }
+
+    /** Centres the image on an axis where it's smaller than the view, else keeps edges on screen. */
+    private void clamp() {
+        float w = imageWidth * scale;
+        float h = imageHeight * scale;
+        offsetX = w <= getWidth() ? (getWidth() - w) / 2 : Math.min(0, Math.max(getWidth() - w, offsetX));
+        offsetY = h <= getHeight() ? (getHeight() - h) / 2 : Math.min(0, Math.max(getHeight() - h, offsetY));
+    }
+
+    private void closeDecoder() {
+        generation++;
+        tiles.evictAll();
+        if (decoder != null) {
+            decoder.recycle();
+            decoder = null;
+        }
+    }
+}
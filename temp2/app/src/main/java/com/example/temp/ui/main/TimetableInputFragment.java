@@ -1,10 +1,11 @@
 package com.example.temp.ui.main;
 
 import android.app.Activity;
+import android.content.ContentResolver;
+import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
-import android.provider.OpenableColumns;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -20,26 +21,28 @@ import androidx.navigation.NavController;
 import androidx.navigation.Navigation;
 
 import com.example.temp.R;
+import com.example.temp.data.OcrResultCache;
+import com.example.temp.network.CircuitOpenException;
+import com.example.temp.network.ContentUriRequestBody;
+import com.example.temp.network.OcrResponse;
+import com.example.temp.network.RequestScheduler;
+import com.example.temp.network.RetrofitClient;
 import com.example.temp.utils.Prefs;
+import com.example.temp.utils.TimetablePageRenderer;
 
-import org.json.JSONObject;
+import com.google.gson.JsonObject;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.IOException;
 
+import okhttp3.MediaType;
 import okhttp3.MultipartBody;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
 import okhttp3.RequestBody;
-import okhttp3.Response;
-import okhttp3.MediaType;
+import retrofit2.Response;
 
 public class TimetableInputFragment extends Fragment {
 
     private static final int PICK_FILE_REQUEST_CODE = 101;
-    private static final String API_URL = "https://tempus-api.neurotechh.xyz/ocr/extract-timetable";
+    private static final MediaType JPEG = MediaType.get("image/jpeg");
 
     private Button uploadButton;
     private ProgressBar progressBar;
@@ -75,7 +78,8 @@ public class TimetableInputFragment extends Fragment {
 
     private void openFilePicker() {
         Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
-        intent.setType("application/pdf");
+        intent.setType("*/*");
+        intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{"application/pdf", "image/jpeg", "image/png"});
         startActivityForResult(intent, PICK_FILE_REQUEST_CODE);
     }
 
@@ -83,103 +87,222 @@ public class TimetableInputFragment extends Fragment {
     public void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
         if (requestCode == PICK_FILE_REQUEST_CODE && resultCode == Activity.RESULT_OK && data != null) {
-            uploadTimetable(data.getData());
+            prepareUpload(data.getData());
         }
     }
 
-    private void uploadTimetable(@NonNull Uri fileUri) {
-        uploadButton.setEnabled(false);
-        progressBar.setVisibility(View.VISIBLE);
+    /**
+     * Only one page of a timetable PDF is the timetable, so rather than shipping the whole
+     * document we render that page to a JPEG and send just the image. Single-page PDFs and
+     * photos go straight through; for longer PDFs the user picks the page, with our best guess
+     * preselected.
+     *
+     * <p>Results are looked up in {@link OcrResultCache} by the document's hash and the page
+     * once we know which page it is: if anyone has extracted that page of this exact file
+     * before, we use their result and skip OCR entirely.
+     */
+    private void prepareUpload(@NonNull Uri fileUri) {
+        setBusy(true);
+        Context context = requireContext().getApplicationContext();
 
         new Thread(() -> {
+            String sha256 = null;
+            try {
+                sha256 = OcrResultCache.sha256(context.getContentResolver(), fileUri);
+            } catch (IOException | SecurityException e) {
+                // Can't read it for hashing; the upload below will report the real problem
+                Log.w("TimetableInput", "Hashing " + fileUri + " failed", e);
+            }
+
+            String documentSha256 = sha256;
             try {
-                File file = getFileFromUri(fileUri);
-                if (file == null) {
-                    showError("Failed to read file");
+                if (!TimetablePageRenderer.isPdf(context.getContentResolver(), fileUri)) {
+                    // The server doesn't keep results for images, only we do
+                    if (documentSha256 != null
+                            && showKnown(context, OcrResultCache.lookupLocal(context, documentSha256, null))) return;
+                    uploadImage(context, fileUri, documentSha256);
                     return;
                 }
-
-                OkHttpClient client = new OkHttpClient();
-                RequestBody requestBody = new MultipartBody.Builder()
-                        .setType(MultipartBody.FORM)
-                        .addFormDataPart("file", file.getName(), RequestBody.create(file, MediaType.parse("application/pdf")))
-                        .build();
-
-                Request request = new Request.Builder().url(API_URL).post(requestBody).build();
-
-                Response response = client.newCall(request).execute();
-                if (!response.isSuccessful()) {
-                    showError("API Error: " + response.code());
+                int pages = TimetablePageRenderer.pageCount(context, fileUri);
+                if (pages <= 1) {
+                    uploadPage(context, fileUri, 0, documentSha256);
                     return;
                 }
+                int detected = TimetablePageRenderer.detectTimetablePage(context, fileUri);
+                runOnUi(() -> choosePage(fileUri, pages, detected, documentSha256));
+            } catch (IOException | SecurityException e) {
+                // PdfRenderer can't open it (e.g. password protected); let the server deal with it
+                Log.w("TimetableInput", "Can't render " + fileUri + ", sending the whole file", e);
+                if (documentSha256 != null
+                        && showKnown(context, OcrResultCache.lookup(context, documentSha256, null))) return;
+                sendForOcr(context, wholeFilePart(context, fileUri), null, documentSha256, null);
+            }
+        }).start();
+    }
 
-                String body = response.body().string();
-                JSONObject root = new JSONObject(body);
-
-                JSONObject dataObj = root
-                        .getJSONArray("results")
-                        .getJSONObject(0)
-                        .getJSONObject("data");
-
-                // ✅ Save timetable permanently
-                Prefs.saveTimetable(requireContext(), dataObj.toString());
-
+    private void choosePage(@NonNull Uri fileUri, int pages, int detected, @Nullable String sha256) {
+        String[] labels = new String[pages];
+        for (int i = 0; i < pages; i++) {
+            labels[i] = i == detected ? "Page " + (i + 1) + " (looks like a timetable)" : "Page " + (i + 1);
+        }
+        int[] choice = {Math.max(detected, 0)};
+        Context context = requireContext().getApplicationContext();
+
+        new com.google.android.material.dialog.MaterialAlertDialogBuilder(requireContext())
+                .setTitle("Which page has the timetable?")
+                .setSingleChoiceItems(labels, choice[0], (dialog, which) -> choice[0] = which)
+                .setPositiveButton("Use page", (dialog, which) ->
+                        new Thread(() -> uploadPage(context, fileUri, choice[0], sha256)).start())
+                .setNegativeButton("Cancel", (dialog, which) -> setBusy(false))
+                .setOnCancelListener(dialog -> setBusy(false))
+                .show();
+    }
 
-                requireActivity().runOnUiThread(() -> {
-                    Bundle bundle = new Bundle();
-                    bundle.putString("json", dataObj.toString());
+    /**
+     * Background thread. The server only shares results of PDFs it hashed itself, so when the
+     * whole document costs at most twice the rendered page we send the document: the next
+     * student to pick it gets the result for free. Otherwise the page goes as a JPEG and only
+     * this device remembers the result.
+     */
+    private void uploadPage(@NonNull Context context, @NonNull Uri fileUri, int pageIndex,
+                            @Nullable String sha256) {
+        int pageNumber = pageIndex + 1;
+        if (sha256 != null && showKnown(context, OcrResultCache.lookup(context, sha256, pageNumber))) return;
+
+        byte[] jpeg;
+        try {
+            jpeg = TimetablePageRenderer.renderPage(context, fileUri, pageIndex);
+        } catch (IOException | RuntimeException e) {
+            // Fall back to the old path: whole PDF, server picks out the page
+            Log.w("TimetableInput", "Rendering page " + pageNumber + " failed", e);
+            sendForOcr(context, wholeFilePart(context, fileUri), pageNumber, sha256, pageNumber);
+            return;
+        }
+        long wholeSize = wholeFileSize(context, fileUri);
+        if (sha256 != null && wholeSize > 0 && wholeSize <= 2L * jpeg.length) {
+            sendForOcr(context, wholeFilePart(context, fileUri), pageNumber, sha256, pageNumber);
+        } else {
+            sendForOcr(context, MultipartBody.Part.createFormData("file", "timetable-page-" + pageNumber + ".jpg",
+                    RequestBody.create(jpeg, JPEG)), null, sha256, pageNumber);
+        }
+    }
 
-                    NavController navController = Navigation.findNavController(requireView());
-                    navController.navigate(R.id.timetableDayWiseFragment, bundle);
+    // Background thread
+    private void uploadImage(@NonNull Context context, @NonNull Uri fileUri, @Nullable String sha256) {
+        byte[] jpeg = null;
+        try {
+            jpeg = TimetablePageRenderer.downscaleImage(context, fileUri);
+        } catch (IOException | RuntimeException e) {
+            Log.w("TimetableInput", "Downscaling " + fileUri + " failed, sending it as is", e);
+        }
+        if (jpeg == null) {
+            sendForOcr(context, wholeFilePart(context, fileUri), null, sha256, null);
+        } else {
+            sendForOcr(context, MultipartBody.Part.createFormData("file", "timetable.jpg",
+                    RequestBody.create(jpeg, JPEG)), null, sha256, null);
+        }
+    }
 
-                    showSuccess("Timetable Loaded ✅");
-                });
+    private MultipartBody.Part wholeFilePart(@NonNull Context context, @NonNull Uri fileUri) {
+        ContentResolver resolver = context.getContentResolver();
+        // Streamed straight from the provider; the OCR route may retry, which re-opens it
+        return MultipartBody.Part.createFormData("file", ContentUriRequestBody.displayName(resolver, fileUri),
+                new ContentUriRequestBody(resolver, fileUri, ContentUriRequestBody.mediaType(resolver, fileUri)));
+    }
 
-            } catch (Exception e) {
-                Log.e("ERROR", "Upload failed", e);
-                showError("Error: " + e.getMessage());
-            } finally {
-                requireActivity().runOnUiThread(() -> {
-                    uploadButton.setEnabled(true);
-                    progressBar.setVisibility(View.GONE);
-                });
-            }
-        }).start();
+    /** Size of the picked document in bytes, or -1 if the provider can't say. */
+    private long wholeFileSize(@NonNull Context context, @NonNull Uri fileUri) {
+        ContentResolver resolver = context.getContentResolver();
+        try {
+            return new ContentUriRequestBody(resolver, fileUri, null).contentLength();
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
     }
 
-    private File getFileFromUri(@NonNull Uri uri) {
+    /**
+     * Background thread. {@code resultPage} is the page of the picked document the upload
+     * stands for (null for all of it), which is what the result is remembered under.
+     */
+    private void sendForOcr(@NonNull Context context, @NonNull MultipartBody.Part filePart,
+                            @Nullable Integer pageNumber, @Nullable String sha256, @Nullable Integer resultPage) {
         try {
-            InputStream inputStream = requireContext().getContentResolver().openInputStream(uri);
-            String fileName = getFileName(uri);
-            File file = new File(requireContext().getCacheDir(), fileName);
-
-            OutputStream outputStream = new FileOutputStream(file);
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) outputStream.write(buffer, 0, length);
-            outputStream.close();
-            inputStream.close();
-            return file;
+            // The user is watching the spinner; uploads and prefetches wait
+            Response<OcrResponse> response = RequestScheduler.execute(
+                    RetrofitClient.api().extractTimetable(filePart, pageNumber),
+                    RequestScheduler.Priority.USER_BLOCKING);
+            if (!response.isSuccessful() || response.body() == null) {
+                showError("API Error: " + response.code());
+                return;
+            }
 
+            JsonObject dataObj = response.body().timetable();
+            if (dataObj == null) {
+                showError("No timetable found in file");
+                return;
+            }
+            // The application context: the user may have left this screen by now
+            if (sha256 != null) OcrResultCache.remember(context, sha256, resultPage, dataObj);
+            showTimetable(context, dataObj.toString());
+
+        } catch (CircuitOpenException e) {
+            // OCR backend keeps failing; don't add to the pile, ask the user to come back later
+            long seconds = Math.max(1, e.getRetryAfterMillis() / 1000);
+            showError("Timetable service is busy. Try again in " + seconds + "s");
         } catch (Exception e) {
-            return null;
+            Log.e("ERROR", "Upload failed", e);
+            showError("Error: " + e.getMessage());
+        } finally {
+            runOnUi(() -> setBusy(false));
         }
     }
 
-    private String getFileName(@NonNull Uri uri) {
-        String result = null;
-        var cursor = requireContext().getContentResolver().query(uri, null, null, null, null);
-        if (cursor != null && cursor.moveToFirst())
-            result = cursor.getString(cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME));
-        if (cursor != null) cursor.close();
-        return result != null ? result : "temp.pdf";
+    // Background thread
+    private boolean showKnown(@NonNull Context context, @Nullable JsonObject known) {
+        if (known == null) return false;
+        showTimetable(context, known.toString());
+        runOnUi(() -> setBusy(false));
+        return true;
+    }
+
+    // Background thread
+    private void showTimetable(@NonNull Context context, @NonNull String timetableJson) {
+        // ✅ Save timetable permanently (even if the user has left this screen meanwhile)
+        Prefs.saveTimetable(context, timetableJson);
+
+        runOnUi(() -> {
+            if (getView() == null) return;
+            Bundle bundle = new Bundle();
+            bundle.putString("json", timetableJson);
+
+            NavController navController = Navigation.findNavController(requireView());
+            navController.navigate(R.id.timetableDayWiseFragment, bundle);
+
+            showSuccess("Timetable Loaded ✅");
+        });
     }
 
+    private void setBusy(boolean busy) {
+        if (uploadButton == null) return;
+        uploadButton.setEnabled(!busy);
+        progressBar.setVisibility(busy ? View.VISIBLE : View.GONE);
+    }
+
+    private void runOnUi(Runnable action) {
+        if (getActivity() != null) getActivity().runOnUiThread(action);
+    }
+
+    // Background threads call these after the fragment may have been detached
     private void showError(String msg) {
-        requireActivity().runOnUiThread(() -> Toast.makeText(requireContext(), msg, Toast.LENGTH_SHORT).show());
+        toast(msg, Toast.LENGTH_SHORT);
     }
 
     private void showSuccess(String msg) {
-        requireActivity().runOnUiThread(() -> Toast.makeText(requireContext(), msg, Toast.LENGTH_LONG).show());
+        toast(msg, Toast.LENGTH_LONG);
+    }
+
+    private void toast(String msg, int duration) {
+        Activity activity = getActivity();
+        if (activity != null) activity.runOnUiThread(() -> Toast.makeText(activity, msg, duration).show());
     }
 }
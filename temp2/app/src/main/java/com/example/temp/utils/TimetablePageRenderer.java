@@ -0,0 +1,204 @@
+package com.example.temp.utils;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.graphics.pdf.PdfRenderer;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Turns a picked timetable document into a compact image for OCR. For PDFs only one page is
+ * rendered, at a resolution that's plenty for the OCR model, and sent as JPEG; photos are
+ * downscaled the same way. Everything here is blocking; call it off the main thread.
+ */
+public class TimetablePageRenderer {
+
+    private static final int OCR_DPI = 200;
+    private static final int MAX_EDGE_PX = 2400;
+    private static final int JPEG_QUALITY = 85;
+
+    // Page detection renders thumbnails this wide and looks for table rules
+    private static final int DETECT_WIDTH_PX = 240;
+    private static final int MAX_PAGES_SCANNED = 12;
+    private static final int MIN_GRID_SCORE = 3;
+
+    public static boolean isPdf(@NonNull ContentResolver resolver, @NonNull Uri uri) {
+        String type = resolver.getType(uri);
+        if (type != null) return type.equals("application/pdf");
+        String path = uri.getLastPathSegment();
+        return path != null && path.toLowerCase().endsWith(".pdf");
+    }
+
+    public static int pageCount(@NonNull Context context, @NonNull Uri uri) throws IOException {
+        try (ParcelFileDescriptor pfd = open(context, uri);
+             PdfRenderer renderer = new PdfRenderer(pfd)) {
+            return renderer.getPageCount();
+        }
+    }
+
+    /**
+     * Guesses which page (0-based) holds the timetable: the one with the most long horizontal
+     * and vertical rules, i.e. the most grid-like. Returns -1 if no page looks like a table.
+     */
+    public static int detectTimetablePage(@NonNull Context context, @NonNull Uri uri) throws IOException {
+        try (ParcelFileDescriptor pfd = open(context, uri);
+             PdfRenderer renderer = new PdfRenderer(pfd)) {
+            int best = -1;
+            int bestScore = MIN_GRID_SCORE - 1;
+            int pages = Math.min(renderer.getPageCount(), MAX_PAGES_SCANNED);
+            for (int i = 0; i < pages; i++) {
+                Bitmap thumb;
+                try (PdfRenderer.Page page = renderer.openPage(i)) {
+                    int height = Math.max(1, Math.round(DETECT_WIDTH_PX * (float) page.getHeight() / page.getWidth()));
+                    thumb = Bitmap.createBitmap(DETECT_WIDTH_PX, height, Bitmap.Config.ARGB_8888);
+                    thumb.eraseColor(Color.WHITE);
+                    page.render(thumb, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+                }
+                int score = gridScore(thumb);
+                thumb.recycle();
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            return best;
+        }
+    }
+
+    /** Renders one page (0-based) at OCR resolution and returns it as JPEG. */
+    @NonNull
+    public static byte[] renderPage(@NonNull Context context, @NonNull Uri uri, int pageIndex) throws IOException {
+        try (ParcelFileDescriptor pfd = open(context, uri);
+             PdfRenderer renderer = new PdfRenderer(pfd);
+             PdfRenderer.Page page = renderer.openPage(pageIndex)) {
+            // Page size is in points (1/72 inch)
+            float scale = OCR_DPI / 72f;
+            float longest = Math.max(page.getWidth(), page.getHeight()) * scale;
+            if (longest > MAX_EDGE_PX) scale *= MAX_EDGE_PX / longest;
+            int width = Math.max(1, Math.round(page.getWidth() * scale));
+            int height = Math.max(1, Math.round(page.getHeight() * scale));
+
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            try {
+                // Pages render onto transparency; JPEG would turn that black
+                bitmap.eraseColor(Color.WHITE);
+                page.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_PRINT);
+                return toJpeg(bitmap);
+            } finally {
+                bitmap.recycle();
+            }
+        }
+    }
+
+    /**
+     * Downscaled JPEG of a photo or scan, or null if it's already a JPEG small enough to send
+     * as it is.
+     */
+    @Nullable
+    public static byte[] downscaleImage(@NonNull Context context, @NonNull Uri uri) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) throw new FileNotFoundException("Cannot open " + uri);
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) throw new IOException("Not an image: " + uri);
+
+        int longest = Math.max(bounds.outWidth, bounds.outHeight);
+        if (longest <= MAX_EDGE_PX && "image/jpeg".equals(bounds.outMimeType)) return null;
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        while (longest / (options.inSampleSize * 2) >= MAX_EDGE_PX) options.inSampleSize *= 2;
+        Bitmap decoded;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (decoded == null) throw new IOException("Cannot decode " + uri);
+
+        Bitmap scaled = decoded;
+        int edge = Math.max(decoded.getWidth(), decoded.getHeight());
+        if (edge > MAX_EDGE_PX) {
+            float f = (float) MAX_EDGE_PX / edge;
+            scaled = Bitmap.createScaledBitmap(decoded, Math.round(decoded.getWidth() * f),
+                    Math.round(decoded.getHeight() * f), true);
+            decoded.recycle();
+        }
+        try {
+            return toJpeg(scaled);
+        } finally {
+            scaled.recycle();
+        }
+    }
+
+    private static ParcelFileDescriptor open(Context context, Uri uri) throws IOException {
+        // PdfRenderer needs a seekable descriptor, which SAF documents provide
+        ParcelFileDescriptor pfd = context.getContentResolver().openFileDescriptor(uri, "r");
+        if (pfd == null) throw new FileNotFoundException("Cannot open " + uri);
+        return pfd;
+    }
+
+    private static byte[] toJpeg(Bitmap bitmap) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Number of table rules on a thumbnail: rows that are dark for at least half the width and
+     * columns dark for at least a third of the height, with adjacent ones merged. A grid needs
+     * both, so the smaller count is the score.
+     */
+    private static int gridScore(Bitmap thumb) {
+        int w = thumb.getWidth();
+        int h = thumb.getHeight();
+        int[] pixels = new int[w * h];
+        thumb.getPixels(pixels, 0, w, 0, 0, w, h);
+
+        boolean[] dark = new boolean[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            int p = pixels[i];
+            int luma = (Color.red(p) * 299 + Color.green(p) * 587 + Color.blue(p) * 114) / 1000;
+            dark[i] = luma < 160;
+        }
+
+        int rows = 0;
+        boolean prevRow = false;
+        for (int y = 0; y < h; y++) {
+            int run = 0, longest = 0;
+            for (int x = 0; x < w; x++) {
+                run = dark[y * w + x] ? run + 1 : 0;
+                if (run > longest) longest = run;
+            }
+            boolean rule = longest >= w / 2;
+            if (rule && !prevRow) rows++;
+            prevRow = rule;
+        }
+
+        int cols = 0;
+        boolean prevCol = false;
+        for (int x = 0; x < w; x++) {
+            int run = 0, longest = 0;
+            for (int y = 0; y < h; y++) {
+                run = dark[y * w + x] ? run + 1 : 0;
+                if (run > longest) longest = run;
+            }
+            boolean rule = longest >= h / 3;
+            if (rule && !prevCol) cols++;
+            prevCol = rule;
+        }
+        return Math.min(rows, cols);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.temp.data;
+
+import com.example.temp.model.NotesModel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NotesSearchIndexTest {
+
+    private static NotesModel note(String id, String name, String subject, String description) {
+        return new NotesModel(id, name, subject, null, null, id + ".pdf", null, 0, description, null);
+    }
+
+    private static List<String> ids(List<NotesModel> notes) {
+        List<String> ids = new ArrayList<>();
+        for (NotesModel n : notes) ids.add(n.getId());
+        return ids;
+    }
+
+    @Test
+    public void editedNoteIsReindexed() {
+        NotesSearchIndex index = new NotesSearchIndex();
+        index.setNotes(Collections.singletonList(note("1", "Graph theory", "ai", null)));
+        assertEquals(Collections.singletonList("1"), ids(index.search("graph")));
+
+        NotesModel edited = note("1", "Linear algebra", "ai", null);
+        index.setNotes(Collections.singletonList(edited));
+        assertTrue(index.search("graph").isEmpty());
+        assertTrue(index.search("theory").isEmpty());
+        List<NotesModel> found = index.search("algebra");
+        assertEquals(1, found.size());
+        assertSame(edited, found.get(0));
+    }
+
+    @Test
+    public void removedNoteDropsOutAndItsSlotIsReused() {
+        NotesSearchIndex index = new NotesSearchIndex();
+        NotesModel os = note("1", "Operating systems", "se", null);
+        NotesModel compilers = note("2", "Compilers", "se", null);
+        index.setNotes(Arrays.asList(os, compilers));
+
+        index.setNotes(Collections.singletonList(compilers));
+        assertTrue(index.search("operating").isEmpty());
+        assertEquals(Collections.singletonList("2"), ids(index.search("se")));
+
+        // Takes the slot "1" was in; none of its old words may lead to the new note
+        NotesModel networks = note("3", "Networks", "ai", null);
+        index.setNotes(Arrays.asList(compilers, networks));
+        assertTrue(index.search("operating").isEmpty());
+        assertTrue(index.search("systems").isEmpty());
+        assertEquals(Collections.singletonList("3"), ids(index.search("networks")));
+        assertEquals(Collections.singletonList("2"), ids(index.search("compilers")));
+        assertEquals(Collections.singletonList("2"), ids(index.search("se")));
+    }
+
+    @Test
+    public void everyQueryWordHasToMatch() {
+        NotesSearchIndex index = new NotesSearchIndex();
+        index.setNotes(Arrays.asList(
+                note("1", "Linear algebra", "ai", null),
+                note("2", "Abstract algebra", "se", null),
+                note("3", "Linear regression", "ai", null)));
+
+        assertEquals(Collections.singletonList("1"), ids(index.search("linear algebra")));
+        assertEquals(Collections.singletonList("1"), ids(index.search("ALGEBRA, linear")));
+        assertEquals(Arrays.asList("1", "3"), ids(index.search("linear ai")));
+        assertEquals(Arrays.asList("1", "2"), ids(index.search("algebra")));
+        assertTrue(index.search("linear zebra").isEmpty());
+    }
+
+    @Test
+    public void blankQueryReturnsTheCatalog() {
+        NotesSearchIndex index = new NotesSearchIndex();
+        List<NotesModel> catalog = Arrays.asList(note("1", "B", "ai", null), note("2", "A", "se", null));
+        index.setNotes(catalog);
+        assertEquals(catalog, index.search("  "));
+        assertEquals(catalog, index.search(null));
+    }
+
+    @Test
+    public void rankedByFieldThenByHowTheWordMatched() {
+        NotesSearchIndex index = new NotesSearchIndex();
+        index.setNotes(Arrays.asList(
+                note("description", "Week 4", "ai", "Slides on networks"),
+                note("name", "Networks", "ai", null),
+                note("subject", "Week 5", "networks", null)));
+        assertEquals(Arrays.asList("name", "subject", "description"), ids(index.search("networks")));
+
+        index.setNotes(Arrays.asList(
+                note("infix", "Subnet masks", "se", null),
+                note("prefix", "Networks", "se", null),
+                note("whole", "Net", "se", null)));
+        assertEquals(Arrays.asList("whole", "prefix", "infix"), ids(index.search("net")));
+    }
+
+    @Test
+    public void tiesKeepCatalogOrder() {
+        NotesSearchIndex index = new NotesSearchIndex();
+        index.setNotes(Arrays.asList(note("b", "Unit 1", "ai", null), note("a", "Unit 2", "ai", null)));
+        assertEquals(Arrays.asList("b", "a"), ids(index.search("unit")));
+
+        index.setNotes(Arrays.asList(note("a", "Unit 2", "ai", null), note("b", "Unit 1", "ai", null)));
+        assertEquals(Arrays.asList("a", "b"), ids(index.search("unit")));
+    }
+}
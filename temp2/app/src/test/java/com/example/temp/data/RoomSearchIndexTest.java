@@ -0,0 +1,53 @@
+package com.example.temp.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RoomSearchIndexTest {
+
+    // Terms: cr301 cr 301 classroom floor3 / tr105 tr 105 tutorial room floor1 / cc201 cc 201 computer lab floor2
+    private final RoomSearchIndex index = new RoomSearchIndex(Arrays.asList(
+            new RoomIndex.Room("cr", "301", "3", 0, null),
+            new RoomIndex.Room("tr", "105", "1", 0, null),
+            new RoomIndex.Room("cc", "201", "2", 0, null)));
+
+    private List<String> keys(String query) {
+        List<String> keys = new ArrayList<>();
+        for (RoomIndex.Room r : index.search(query, 10)) keys.add(r.key);
+        return keys;
+    }
+
+    @Test
+    public void prefixesMatchWithoutEdits() {
+        assertEquals(Collections.singletonList("cr301"), keys("cr 301"));
+        assertEquals(Collections.singletonList("tr105"), keys("tut"));
+        assertEquals(Collections.singletonList("cc201"), keys("Computer Lab"));
+    }
+
+    @Test
+    public void shortTokensAllowOneEdit() {
+        // "tutr" is one substitution from "tuto"
+        assertEquals(Collections.singletonList("tr105"), keys("tutr"));
+        // "tztr" is two from anything indexed
+        assertTrue(keys("tztr").isEmpty());
+    }
+
+    @Test
+    public void longerTokensAllowTwoEdits() {
+        assertEquals(Collections.singletonList("cr301"), keys("clasrom"));
+        assertEquals(Collections.singletonList("cc201"), keys("cmputr"));
+        // Three substitutions in "classroom"
+        assertTrue(keys("cxassxxom").isEmpty());
+    }
+
+    @Test
+    public void tokensUnderThreeCharactersAreNotFuzzed() {
+        assertTrue(keys("xr").isEmpty());
+    }
+}